@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lab.GraphCache;
+import lab.Navigation;
+
+/**
+ * Navigation(String): parsing the map when the shared cache is off ("cold"),
+ * or only looking it up when the map is cached already ("cached").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+    private static final long DEFAULT_CACHE = 256L << 20;
+
+    @Param({ "TestFile1", "TestFile2", "TestFile3", "TestFile4", "TestFile5", "TestFile6",
+            "grid-40000", "grid-360000", "geometric-200000", "scalefree-200000" })
+    public String map;
+
+    @Param({ "cold", "cached" })
+    public String cache;
+
+    private String file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Maps.file(map);
+        GraphCache.shared().clear();
+        GraphCache.shared().setCapacityBytes(cache.equals("cold") ? 0 : DEFAULT_CACHE);
+        new Navigation(file);
+    }
+
+    @TearDown
+    public void tearDown(){
+        GraphCache.shared().setCapacityBytes(DEFAULT_CACHE);
+    }
+
+    @Benchmark
+    public Navigation load(){
+        return new Navigation(file);
+    }
+}
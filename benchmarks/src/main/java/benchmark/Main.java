@@ -0,0 +1,20 @@
+package benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Hands the command line to the JMH launcher, so -l, -h, -lprof and every other
+ * option work as usual, and adds the gc profiler unless profilers are given, so
+ * every result comes with its allocation rate.
+ */
+public class Main {
+    public static void main(String[] args) throws Exception {
+        if(!Arrays.asList(args).contains("-prof")){
+            String[] withGc = Arrays.copyOf(args, args.length + 2);
+            withGc[args.length] = "-prof";
+            withGc[args.length + 1] = "gc";
+            args = withGc;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
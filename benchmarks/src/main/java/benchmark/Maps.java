@@ -0,0 +1,56 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import lab.CompactGraph;
+import lab.MapGenerator;
+
+/**
+ * The maps the benchmarks run on: the test maps of the lab (looked up in the
+ * directory given by -Dmaps.dir, default "..") and maps generated by
+ * MapGenerator with seed 1.
+ */
+final class Maps {
+    static final String DIR = System.getProperty("maps.dir", "..");
+
+    private Maps(){}
+
+    /**
+     * @param name
+     *      TestFile1 to TestFile6, or shape-edges for a generated map (see MapGenerator),
+     *      for example grid-40000, geometric-200000 or scalefree-200000
+     * @return
+     *      file name of the map, generated maps are written to the temp directory once
+     */
+    static String file(String name) throws IOException {
+        int dash = name.indexOf('-');
+        if(dash < 0)
+            return new File(DIR, name).getPath();
+        File file = new File(System.getProperty("java.io.tmpdir"), "lab-" + name + ".dot");
+        if(!file.isFile()){
+            String shape = name.substring(0, dash);
+            MapGenerator map = MapGenerator.generate(shape.equals("grid") ? MapGenerator.Shape.GRID
+                    : shape.equals("geometric") ? MapGenerator.Shape.GEOMETRIC : MapGenerator.Shape.SCALE_FREE,
+                    Integer.parseInt(name.substring(dash + 1)), 1);
+            File partial = new File(file.getPath() + ".tmp");
+            map.write(partial.getPath());
+            if(!partial.renameTo(file))
+                throw new IOException("could not write " + file);
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @return
+     *      count source/destination name pairs drawn from the nodes of g, the same for every run
+     */
+    static String[][] pairs(CompactGraph g, int count){
+        Random random = new Random(42);
+        String[][] pairs = new String[count][];
+        for(int i = 0; i < count; i++)
+            pairs[i] = new String[] { g.getName(random.nextInt(g.nodeCount())), g.getName(random.nextInt(g.nodeCount())) };
+        return pairs;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lab.Navigation;
+import lab.SearchMode;
+
+/**
+ * Point to point queries between a fixed set of random node pairs, cycled
+ * through one pair per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int PAIRS = 256;
+
+    @Param({ "TestFile1", "TestFile2", "TestFile3", "TestFile4", "TestFile5", "TestFile6",
+            "grid-40000", "grid-360000", "geometric-200000", "scalefree-200000" })
+    public String map;
+
+    @Param({ "DIJKSTRA", "BIDIRECTIONAL", "ALT", "CONTRACTION_HIERARCHY" })
+    public String mode;
+
+    private Navigation navigation;
+    private String[][] pairs;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        navigation = new Navigation(Maps.file(map));
+        navigation.setSearchMode(SearchMode.valueOf(mode));
+        if(mode.equals("ALT"))
+            navigation.useLandmarks(8);
+        if(mode.equals("CONTRACTION_HIERARCHY"))
+            navigation.useContractionHierarchy();
+        pairs = Maps.pairs(navigation.getGraph(), PAIRS);
+    }
+
+    private String[] pair(){
+        return pairs[next++ & (PAIRS - 1)];
+    }
+
+    @Benchmark
+    public int findShortestDistance(){
+        String[] pair = pair();
+        return navigation.findShortestDistance(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public int findFastestTime(){
+        String[] pair = pair();
+        return navigation.findFastestTime(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public ArrayList<String> findShortestRoute(){
+        String[] pair = pair();
+        return navigation.findShortestRoute(pair[0], pair[1]);
+    }
+}
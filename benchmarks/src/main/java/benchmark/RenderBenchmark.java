@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lab.CompactGraph;
+import lab.Navigation;
+import lab.Route;
+
+/**
+ * Rendering the map with the longest of a few shortest routes marked bold,
+ * as list and streamed, and the plain map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ "TestFile1", "TestFile2", "TestFile3", "TestFile4", "TestFile5", "TestFile6",
+            "grid-40000", "grid-360000", "geometric-200000", "scalefree-200000" })
+    public String map;
+
+    private Navigation navigation;
+    private int[] path;
+    private final Writer sink = Writer.nullWriter();
+
+    @Setup
+    public void setUp() throws IOException {
+        navigation = new Navigation(Maps.file(map));
+        CompactGraph g = navigation.getGraph();
+        Route longest = null;
+        for(String[] pair : Maps.pairs(g, 64)){
+            Route route = navigation.findShortestPath(pair[0], pair[1]);
+            if(route != null && (longest == null || route.size() > longest.size()))
+                longest = route;
+        }
+        if(longest == null)
+            throw new IllegalStateException("no route between the sampled pairs of " + map);
+        path = new int[longest.size()];
+        for(int i = 0; i < path.length; i++)
+            path[i] = longest.getNode(i);
+    }
+
+    @Benchmark
+    public ArrayList<String> makeMapRoute(){
+        return navigation.makeMap(path);
+    }
+
+    @Benchmark
+    public ArrayList<String> makeMapPlain(){
+        return navigation.makeMap((int[]) null);
+    }
+
+    @Benchmark
+    public Writer writeMapRoute() throws IOException {
+        navigation.writeMap(path, sink);
+        return sink;
+    }
+}
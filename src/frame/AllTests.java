@@ -6,8 +6,10 @@ import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.function.Consumer;
 
 import lab.Navigation;
+import lab.Route;
 
 /**
  * TestCases for the second lab. This class contains the static methods used by
@@ -147,6 +149,64 @@ public class AllTests {
 		return correct;
 	}
 
+	/**
+	 * This method compares the answers of a Navigation set up by configure with
+	 * the answers of a plain Navigation on the same map. Distances and times
+	 * are compared for every pair of nodes, including a node that is not on
+	 * the map. It prints every difference to standard error.
+	 *
+	 * @param filename
+	 *            The name of the file storing the map
+	 * @param configure
+	 *            Selects the queue strategy or search mode to test
+	 * @return True if all answers are the same
+	 */
+	public static final boolean testSameAnswers(String filename, Consumer<Navigation> configure) {
+		Navigation lab = new Navigation(filename);
+		configure.accept(lab);
+		return testSameAnswers(filename, new Navigation(filename), lab);
+	}
+
+	/**
+	 * This method compares the answers of two Navigations on the same map like
+	 * testSameAnswers(filename, configure), for maps changed by updates.
+	 *
+	 * @param filename
+	 *            The name of the file storing the map, for the messages
+	 * @param expected
+	 *            Gives the expected answers
+	 * @param lab
+	 *            The Navigation to test
+	 * @return True if all answers are the same
+	 */
+	public static final boolean testSameAnswers(String filename, Navigation expected, Navigation lab) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (int i = 0; i < expected.getGraph().nodeCount(); i++)
+			names.add(expected.getGraph().getName(i));
+		names.add("NotOnMap");
+		boolean correct = true;
+
+		for (String start : names) {
+			for (String stop : names) {
+				String wanted = answers(expected, start, stop);
+				String found = answers(lab, start, stop);
+				if (!wanted.equals(found)) {
+					correct = false;
+					System.err.println("[" + filename + "_" + start + "_" + stop + "] expected " + wanted + " but found " + found);
+				}
+			}
+		}
+		return correct;
+	}
+
+	private static String answers(Navigation lab, String start, String stop) {
+		Route shortest = lab.findShortestPath(start, stop);
+		Route fastest = lab.findFastestPath(start, stop);
+		return lab.findShortestDistance(start, stop) + " km, " + lab.findFastestTime(start, stop) + " min, route "
+				+ (shortest == null ? "none" : String.format("%.6f km", shortest.getTotalDistance())) + ", route "
+				+ (fastest == null ? "none" : String.format("%.6f min", fastest.getTotalMinutes()));
+	}
+
 	/**
 	 * This method writes a map to file
 	 * 
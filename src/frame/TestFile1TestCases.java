@@ -1,16 +1,38 @@
 package frame;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 
+import lab.AsyncNavigation;
+import lab.CompactGraph;
+import lab.LazyHeapQueue;
+import lab.Metric;
 import lab.Navigation;
+import lab.Route;
+import lab.SearchMode;
+import lab.SpeedProfile;
+import lab.TravelTimeFunction;
+import lab.WeightUpdate;
 
 public class TestFile1TestCases {
 
@@ -127,6 +149,27 @@ public class TestFile1TestCases {
 		});
 	}
 
+	@Test
+	public void TestFile1_Matrix_Distance() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			int[][] matrix = lab.findShortestDistances(Arrays.asList("A", "B", "R"), Arrays.asList("C", "H", "A", "R"), false);
+			assertArrayEquals(new int[] { 8, 29, 0, -2 }, matrix[0], "From A: ");
+			assertArrayEquals(new int[] { -4, 22, -4, -2 }, matrix[1], "From B: ");
+			assertArrayEquals(new int[] { -1, -1, -1, 0 }, matrix[2], "From R: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Matrix_Time() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			int[][] matrix = lab.findFastestTimes(Arrays.asList("A", "A"), Arrays.asList("B", "D", "E", "F", "H"), true);
+			assertArrayEquals(new int[] { 7, 14, 19, 18, 37 }, matrix[0], "From A: ");
+			assertArrayEquals(matrix[0], matrix[1], "From A again: ");
+		});
+	}
+
 	@Test
 	public void TestFile1_Route_B_A_NoPath() {
 		assertTimeoutPreemptively(timeout, () -> {
@@ -180,6 +223,57 @@ public class TestFile1TestCases {
 		});
 	}
 
+	@Test
+	public void TestFile1_Path_A_G_Distance() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			Route route = lab.findShortestPath("A", "G");
+			assertEquals(Arrays.asList("A", "C", "D", "F", "G"), route.getNames(), "Route not correct");
+			assertEquals(24, (int) Math.ceil(route.getTotalDistance()), "From A to G: ");
+			assertEquals(lab.findShortestRoute("A", "G"), lab.makeRouteMap(route), "Map not correct");
+			assertNull(lab.findShortestPath("B", "A"), "From B to A: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Update_A_G_Distance() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			assertEquals(1, lab.update(new WeightUpdate().setDistance("C", "D", 20)), "Version: ");
+			assertEquals(26, lab.findShortestDistance("A", "G"), "From A to G: ");
+			assertEquals(Arrays.asList("A", "C", "B", "D", "F", "G"), lab.findShortestPath("A", "G").getNames(), "Route not correct");
+			assertEquals(24, new Navigation("TestFile1").findShortestDistance("A", "G"), "Other instances keep the file weights: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Time_A_F_Departure() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			assertEquals(18, lab.findFastestTime("A", "F", 480), "From A to F at 8:00 without profiles: ");
+			// C -> D slows down to a quarter of its speed limit until 8:00, then speeds up again until 9:00
+			lab.update(new WeightUpdate().setSpeedProfile("C", "D", new SpeedProfile(new double[] { 420, 480, 540 }, new double[] { 1, 0.25, 1 })));
+			assertEquals(18, lab.findFastestTime("A", "F", 400), "From A to F at 6:40: ");
+			assertEquals(19, lab.findFastestTime("A", "F", 420), "From A to F at 7:00: ");
+			assertEquals(22, lab.findFastestTime("A", "F", 480), "From A to F at 8:00: ");
+			assertEquals(18, lab.findFastestTime("A", "F", 540), "From A to F at 9:00: ");
+			assertEquals(18, lab.findFastestTime("A", "F"), "From A to F without departure time: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Profile_A_F() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			lab.update(new WeightUpdate().setSpeedProfile("C", "D", new SpeedProfile(new double[] { 420, 480, 540 }, new double[] { 1, 0.25, 1 })));
+			TravelTimeFunction profile = lab.findTravelTimeFunction("A", "F");
+			assertEquals(18, (int) Math.ceil(profile.getMinimum()), "Fastest from A to F: ");
+			assertEquals(19, (int) Math.ceil(profile.evaluate(420)), "From A to F at 7:00: ");
+			assertEquals(22, (int) Math.ceil(profile.evaluate(480)), "From A to F at 8:00: ");
+			assertNull(lab.findTravelTimeFunction("B", "A"), "From B to A: ");
+		});
+	}
+
 	@Test
 	public void TestFile1_Route_A_F_Time() {
 		assertTimeoutPreemptively(timeout, () -> {
@@ -234,4 +328,256 @@ public class TestFile1TestCases {
 		});
 	}
 
+	@Test
+	public void TestFile1_Async_Completed() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			AsyncNavigation async = AsyncNavigation.withForkJoinPool(lab, 4);
+			CompletableFuture<Integer> distance = async.findShortestDistance("A", "G");
+			CompletableFuture<Integer> time = async.findFastestTime("A", "F");
+			CompletableFuture<ArrayList<String>> shortest = async.findShortestRoute("A", "G");
+			CompletableFuture<ArrayList<String>> fastest = async.findFastestRoute("A", "F");
+			assertEquals(24, distance.get(), "From A to G: ");
+			assertEquals(18, time.get(), "From A to F: ");
+			assertEquals(lab.findShortestRoute("A", "G"), shortest.get(), "Map not correct");
+			assertEquals(lab.findFastestRoute("A", "F"), fastest.get(), "Map not correct");
+			assertEquals(4, async.availableSlots(), "Free slots after all queries completed: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Async_MaxPending() {
+		assertTimeoutPreemptively(timeout, () -> {
+			// queries only run when the test takes them from the queue
+			LinkedBlockingQueue<Runnable> queued = new LinkedBlockingQueue<Runnable>();
+			AsyncNavigation async = new AsyncNavigation(new Navigation("TestFile1"), queued::add, 2);
+			CompletableFuture<Integer> first = async.findShortestDistance("A", "C");
+			CompletableFuture<Integer> second = async.findFastestTime("A", "F");
+			assertEquals(0, async.availableSlots(), "Free slots with two queries pending: ");
+			CompletableFuture<CompletableFuture<Integer>> third = CompletableFuture
+					.supplyAsync(() -> async.findShortestDistance("A", "G"));
+			Thread.sleep(50);
+			assertFalse(third.isDone(), "A third query has to wait for a free slot");
+			queued.take().run();
+			assertEquals(8, first.get(), "From A to C: ");
+			assertFalse(third.get().isDone(), "The third query is submitted once the first one completed");
+			queued.take().run();
+			queued.take().run();
+			assertEquals(18, second.get(), "From A to F: ");
+			assertEquals(24, third.get().get(), "From A to G: ");
+			assertEquals(2, async.availableSlots(), "Free slots after all queries completed: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Async_VirtualThreads() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			if (Runtime.version().feature() < 21) {
+				assertThrows(UnsupportedOperationException.class, () -> AsyncNavigation.withVirtualThreads(lab, 4),
+						"Virtual threads need Java 21: ");
+				return;
+			}
+			try (AsyncNavigation async = AsyncNavigation.withVirtualThreads(lab, 4)) {
+				assertEquals(24, async.findShortestDistance("A", "G").get(), "From A to G: ");
+			}
+		});
+	}
+
+	@Test
+	public void TestFile1_Async_Close() {
+		assertTimeoutPreemptively(timeout, () -> {
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			try {
+				AsyncNavigation async = new AsyncNavigation(new Navigation("TestFile1"), executor, 4);
+				CompletableFuture<Integer> distance = async.findShortestDistance("A", "G");
+				async.close();
+				assertEquals(24, distance.get(), "Query submitted before close: ");
+				assertThrows(RejectedExecutionException.class, () -> async.findShortestDistance("A", "G"),
+						"Query submitted after close: ");
+				assertFalse(executor.isShutdown(), "An executor passed in stays with the caller");
+			} finally {
+				executor.shutdown();
+			}
+		});
+	}
+
+	@Test
+	public void TestFile1_Bidirectional_NoPath() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			lab.setSearchMode(SearchMode.BIDIRECTIONAL);
+			assertEquals(-4, lab.findShortestDistance("B", "A"), "Test non-existing path B->A: ");
+			assertEquals(-4, lab.findFastestTime("B", "A"), "Test non-existing path B->A: ");
+			assertTrue(AllTests.testNoRoute(lab.findFastestRoute("B", "A"), "TestFile1", "B", "A", AllTests.OutputFormat.RouteTime),
+					"Test non-existing path B->A: ");
+			assertEquals(0, lab.findShortestDistance("A", "A"), "Test reflexitivity (A->A): ");
+			assertEquals(0, lab.findFastestTime("A", "A"), "Test reflexitivity (A->A): ");
+			assertEquals(37, lab.findFastestTime("A", "H"), "From A to H: ");
+		});
+	}
+
+	@Test
+	public void TestFile1_Landmarks_File() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path directory = Files.createTempDirectory("landmarks");
+			Path map = Files.copy(Paths.get("TestFile1"), directory.resolve("TestFile1"));
+			Path landmarkFile = Paths.get(map + ".landmarks");
+			try {
+				Navigation lab = new Navigation(map.toString());
+				lab.setSearchMode(SearchMode.ALT);
+				lab.useLandmarks(3);
+				byte[] saved = Files.readAllBytes(landmarkFile);
+				assertEquals(24, lab.findShortestDistance("A", "G"), "From A to G: ");
+				// the landmarks are computed again for the shorter edge, but not saved
+				lab.update(new WeightUpdate().setDistance("C", "D", 2));
+				lab.useLandmarks(3);
+				assertEquals(20, lab.findShortestDistance("A", "G"), "From A to G after the update: ");
+				assertArrayEquals(saved, Files.readAllBytes(landmarkFile), "Landmark file after the update: ");
+				Navigation other = new Navigation(map.toString());
+				other.setSearchMode(SearchMode.ALT);
+				other.useLandmarks(3);
+				assertEquals(24, other.findShortestDistance("A", "G"), "From A to G in another instance: ");
+				assertArrayEquals(saved, Files.readAllBytes(landmarkFile), "Landmark file of another instance: ");
+			} finally {
+				Files.deleteIfExists(landmarkFile);
+				Files.delete(map);
+				Files.delete(directory);
+			}
+		});
+	}
+
+	@Test
+	public void TestFile1_ContractionHierarchy_Time() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			lab.useContractionHierarchy();
+			lab.setSearchMode(SearchMode.CONTRACTION_HIERARCHY);
+			assertEquals(7, lab.findFastestTime("A", "B"), "From A to B: ");
+			assertEquals(14, lab.findFastestTime("A", "D"), "From A to D: ");
+			assertEquals(19, lab.findFastestTime("A", "E"), "From A to E: ");
+			assertEquals(18, lab.findFastestTime("A", "F"), "From A to F: ");
+			assertEquals(37, lab.findFastestTime("A", "H"), "From A to H: ");
+			assertEquals(-4, lab.findFastestTime("B", "A"), "Test non-existing path B->A: ");
+			assertEquals(0, lab.findFastestTime("A", "A"), "Test reflexitivity (A->A): ");
+		});
+	}
+
+	@Test
+	public void TestFile1_ContractionHierarchy_Route_A_H_Time() {
+		assertTimeoutPreemptively(timeout, () -> {
+			ArrayList<String> route = new ArrayList<String>();
+			Navigation lab = new Navigation("TestFile1");
+			lab.useContractionHierarchy();
+			lab.setSearchMode(SearchMode.CONTRACTION_HIERARCHY);
+			// Build the route we expect to find
+			route.add("A\\s*->\\s*C");
+			route.add("C\\s*->\\s*D");
+			route.add("D\\s*->\\s*F");
+			route.add("F\\s*->\\s*G");
+			route.add("G\\s*->\\s*H");
+			assertTrue(AllTests.testRoute(true, lab.findFastestRoute("A", "H"), route, "TestFile1", "A", "H",
+					AllTests.OutputFormat.RouteTime), "Route not correct");
+			assertTrue(AllTests.testNoRoute(lab.findFastestRoute("B", "A"), "TestFile1", "B", "A", AllTests.OutputFormat.RouteTime),
+					"Test non-existing path B->A: ");
+		});
+	}
+
+	/**
+	 * Applies update to a Navigation whose tree cache holds the trees of every
+	 * source and to a fresh one without cache, and compares their answers.
+	 */
+	private static void testTreeCacheUpdate(WeightUpdate update) {
+		testTreeCacheUpdate(update, lab -> {});
+	}
+
+	private static void testTreeCacheUpdate(WeightUpdate update, Consumer<Navigation> configure) {
+		Navigation lab = new Navigation("TestFile1");
+		configure.accept(lab);
+		lab.setTreeCacheSize(32);
+		assertTrue(AllTests.testSameAnswers("TestFile1", new Navigation("TestFile1"), lab), "Answers from cached trees: ");
+		assertEquals(16, lab.getTreeCache().size(), "Cached trees: ");
+		lab.update(update);
+		Navigation expected = new Navigation("TestFile1");
+		expected.update(update);
+		assertTrue(lab.getTreeCache().size() > 0, "Trees kept after the update: ");
+		long hits = lab.getTreeCache().getHits();
+		assertTrue(AllTests.testSameAnswers("TestFile1", expected, lab), "Answers from repaired trees: ");
+		assertTrue(lab.getTreeCache().getHits() > hits, "Repaired trees are used: ");
+		assertEquals(expected.findShortestPath("A", "H").getNames(), lab.findShortestPath("A", "H").getNames(), "Shortest route from A to H: ");
+		assertEquals(expected.findFastestPath("A", "H").getNames(), lab.findFastestPath("A", "H").getNames(), "Fastest route from A to H: ");
+	}
+
+	@Test
+	public void TestFile1_TreeCache_Slower_Tree_Edge() {
+		assertTimeoutPreemptively(timeout, () -> {
+			// C -> D is on the shortest and on the fastest route from A
+			testTreeCacheUpdate(new WeightUpdate().setDistance("C", "D", 20).setMaxSpeed("C", "D", 10));
+		});
+	}
+
+	@Test
+	public void TestFile1_TreeCache_LazyQueue() {
+		assertTimeoutPreemptively(timeout, () -> {
+			// all trees are repaired with the one queue of the search context
+			testTreeCacheUpdate(new WeightUpdate().setDistance("C", "D", 20).setMaxSpeed("C", "D", 10),
+					lab -> lab.setQueueStrategy(LazyHeapQueue::new));
+		});
+	}
+
+	@Test
+	public void TestFile1_TreeCache_Faster_NonTree_Edge() {
+		assertTimeoutPreemptively(timeout, () -> {
+			// B -> D is on no route from A until it gets shorter and faster
+			testTreeCacheUpdate(new WeightUpdate().setDistance("B", "D", 2).setMaxSpeed("B", "D", 130));
+		});
+	}
+
+	@Test
+	public void TestFile1_TreeCache_Delay() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testTreeCacheUpdate(new WeightUpdate().setDelay("D", 30).setDelay("B", 0));
+		});
+	}
+
+	/**
+	 * Driving an edge costs its distance plus 2, leaving a node its delay.
+	 */
+	private static final Metric DISTANCE_HOPS_DELAY = new Metric("DistanceHopsDelay") {
+		@Override
+		public double edgeCost(CompactGraph g, int edge) {
+			return g.getDistance(edge) + 2;
+		}
+
+		@Override
+		public double departureCost(CompactGraph g, int node) {
+			return g.getDelay(node);
+		}
+	};
+
+	@Test
+	public void TestFile1_Custom_Metric() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			// A -> B costs 12, A -> C -> B costs 10 + 3 + 3
+			assertEquals(12, lab.findCost("A", "B", DISTANCE_HOPS_DELAY), "From A to B: ");
+			assertEquals(Arrays.asList("A", "B"), lab.findPath("A", "B", DISTANCE_HOPS_DELAY).getNames(), "Route from A to B: ");
+			assertEquals(Arrays.asList("A", "C", "B"), lab.findShortestPath("A", "B").getNames(), "Shortest route from A to B: ");
+			// A -> C -> D -> F -> G -> H costs 10 + (3 + 8) + (2 + 7) + (6 + 7) + (7 + 7)
+			assertEquals(57, lab.findCost("A", "H", DISTANCE_HOPS_DELAY), "From A to H: ");
+			assertEquals(Arrays.asList("A", "C", "D", "F", "G", "H"), lab.findPath("A", "H", DISTANCE_HOPS_DELAY).getNames(),
+					"Route from A to H: ");
+			assertEquals(0, lab.findCost("A", "A", DISTANCE_HOPS_DELAY), "Test reflexitivity (A->A): ");
+			assertEquals(-4, lab.findCost("B", "A", DISTANCE_HOPS_DELAY), "Test non-existing path B->A: ");
+			int[][] expected = {
+					{ 12, 21, 57, 0 },
+					{ 3, 8, 44, -4 },
+					{ 0, 9, 45, -4 } };
+			for (boolean parallel : new boolean[] { false, true })
+				assertArrayEquals(expected, lab.findCosts(Arrays.asList("A", "C", "B"), Arrays.asList("B", "D", "H", "A"),
+						DISTANCE_HOPS_DELAY, parallel), "Cost matrix, parallel " + parallel + ": ");
+			assertEquals(57, lab.findCost("A", "H", DISTANCE_HOPS_DELAY), "From A to H again: ");
+		});
+	}
+
 }
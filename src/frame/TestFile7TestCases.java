@@ -0,0 +1,106 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import lab.Navigation;
+import lab.SearchMode;
+
+public class TestFile7TestCases {
+
+	private Duration timeout = AllTests.timeout;
+
+	// every node of this map has a position, so SearchMode.ASTAR runs A* instead of Dijkstra
+	private static final String filename = "TestFile7";
+
+	private static Navigation aStar() {
+		Navigation lab = new Navigation(filename);
+		lab.setSearchMode(SearchMode.ASTAR);
+		return lab;
+	}
+
+	@Test
+	public void TestFile7_A_H_Distance() {
+		assertTimeoutPreemptively(timeout, () -> {
+			assertEquals(71, AllTests.testDistance(filename, "A", "H"), "From A to H: ");
+			assertEquals(71, aStar().findShortestDistance("A", "H"), "From A to H with A*: ");
+		});
+	}
+
+	@Test
+	public void TestFile7_A_F_Time() {
+		assertTimeoutPreemptively(timeout, () -> {
+			assertEquals(23, AllTests.testTime(filename, "A", "F"), "From A to F: ");
+			assertEquals(23, aStar().findFastestTime("A", "F"), "From A to F with A*: ");
+		});
+	}
+
+	@Test
+	public void TestFile7_A_I_NoPath() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = aStar();
+			assertEquals(-4, lab.findShortestDistance("A", "I"), "Test non-existing path A->I: ");
+			assertEquals(-4, lab.findFastestTime("A", "I"), "Test non-existing path A->I: ");
+			assertTrue(AllTests.testNoRoute(lab.findShortestRoute("A", "I"), filename, "A", "I", AllTests.OutputFormat.RouteDistance),
+					"Test non-existing path A->I: ");
+		});
+	}
+
+	@Test
+	public void TestFile7_AStar() {
+		assertTimeoutPreemptively(timeout, () -> {
+			assertTrue(AllTests.testSameAnswers(filename, lab -> lab.setSearchMode(SearchMode.ASTAR)), "Answers of A*: ");
+		});
+	}
+
+	@Test
+	public void TestFile7_Route_A_H_Distance() {
+		assertTimeoutPreemptively(timeout, () -> {
+			ArrayList<String> route = new ArrayList<String>();
+			Navigation lab = aStar();
+			// Build the route we expect to find
+			route.add("A\\s*->\\s*B");
+			route.add("B\\s*->\\s*C");
+			route.add("C\\s*->\\s*G");
+			route.add("G\\s*->\\s*H");
+			ArrayList<String> found = lab.findShortestRoute("A", "H");
+			assertTrue(AllTests.testRoute(true, found, route, filename, "A", "H", AllTests.OutputFormat.RouteDistance),
+					"Route not correct");
+			assertEquals(new Navigation(filename).findShortestRoute("A", "H"), found, "Map not correct");
+		});
+	}
+
+	@Test
+	public void TestFile7_Route_A_G_Time() {
+		assertTimeoutPreemptively(timeout, () -> {
+			ArrayList<String> route = new ArrayList<String>();
+			Navigation lab = aStar();
+			// Build the route we expect to find
+			route.add("A\\s*->\\s*B");
+			route.add("B\\s*->\\s*C");
+			route.add("C\\s*->\\s*G");
+			ArrayList<String> found = lab.findFastestRoute("A", "G");
+			assertTrue(AllTests.testRoute(true, found, route, filename, "A", "G", AllTests.OutputFormat.RouteTime),
+					"Route not correct");
+			assertEquals(new Navigation(filename).findFastestRoute("A", "G"), found, "Map not correct");
+		});
+	}
+
+	@Test
+	public void TestFile7_Positions() {
+		assertTimeoutPreemptively(timeout, () -> {
+			ArrayList<String> found = aStar().findShortestRoute("A", "H");
+			assertEquals(22, found.size(), "Number of entries in output map: ");
+			assertTrue(found.contains("A [label=\"A,3.0\", pos=\"0.0,0.0\"][style=bold];"), "Position of A: ");
+			assertTrue(found.contains("H [label=\"H,6.0\", pos=\"40.0,40.0\"][style=bold];"), "Position of H: ");
+			assertTrue(found.contains("I [label=\"I,1.0\", pos=\"45.0,0.0\"];"), "Position of I: ");
+		});
+	}
+
+}
@@ -0,0 +1,116 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lab.CompactGraph;
+import lab.GraphCache;
+import lab.Navigation;
+
+public class TestGraphCache {
+
+	private Duration timeout = AllTests.timeout;
+	private Path directory;
+	private long capacity;
+
+	// the shared cache is used by every test, each one starts and leaves it empty
+	@BeforeEach
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("graphcache");
+		capacity = GraphCache.shared().getCapacityBytes();
+		GraphCache.shared().clear();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		GraphCache.shared().clear();
+		GraphCache.shared().setCapacityBytes(capacity);
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator)
+				Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+
+	private Path copy(String name) throws Exception {
+		return Files.copy(Paths.get("TestFile1"), directory.resolve(name));
+	}
+
+	private static void replace(Path map, String line, String by) throws Exception {
+		String text = new String(Files.readAllBytes(map), StandardCharsets.UTF_8);
+		Files.write(map, text.replace(line, by).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void TestGraphCache_Reload() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path map = copy("TestFile1");
+			CompactGraph graph = new Navigation(map.toString()).getGraph();
+			assertSame(graph, new Navigation(map.toString()).getGraph(), "Unchanged map is parsed again: ");
+			assertEquals(24, new Navigation(map.toString()).findShortestDistance("A", "G"), "From A to G: ");
+			// same size, only the modification time tells the maps apart
+			long modified = Files.getLastModifiedTime(map).toMillis();
+			replace(map, "C -> D [label=\"6,80\"];", "C -> D [label=\"2,80\"];");
+			map.toFile().setLastModified(modified + 2000);
+			Navigation changed = new Navigation(map.toString());
+			assertNotSame(graph, changed.getGraph(), "Map with a new modification time is not parsed again: ");
+			assertEquals(20, changed.findShortestDistance("A", "G"), "From A to G after the change: ");
+			// same modification time, only the size tells the maps apart
+			replace(map, "C -> D [label=\"2,80\"];", "C -> D [label=\"12,80\"];");
+			map.toFile().setLastModified(modified + 2000);
+			assertEquals(26, new Navigation(map.toString()).findShortestDistance("A", "G"), "From A to G after the second change: ");
+			assertEquals(1, GraphCache.shared().size(), "Cached maps: ");
+		});
+	}
+
+	@Test
+	public void TestGraphCache_LRU() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path a = copy("A");
+			Path b = copy("B");
+			Path c = copy("C");
+			CompactGraph graphA = new Navigation(a.toString()).getGraph();
+			long bytes = GraphCache.shared().getUsedBytes();
+			GraphCache.shared().setCapacityBytes(2 * bytes);
+			CompactGraph graphB = new Navigation(b.toString()).getGraph();
+			// A is used again, so B is the least recently used map when C comes
+			new Navigation(a.toString());
+			new Navigation(c.toString());
+			assertEquals(2, GraphCache.shared().size(), "Cached maps: ");
+			assertEquals(2 * bytes, GraphCache.shared().getUsedBytes(), "Used bytes: ");
+			assertSame(graphA, new Navigation(a.toString()).getGraph(), "Recently used map was dropped: ");
+			assertNotSame(graphB, new Navigation(b.toString()).getGraph(), "Least recently used map was kept: ");
+		});
+	}
+
+	@Test
+	public void TestGraphCache_Disabled() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path map = copy("TestFile1");
+			new Navigation(map.toString());
+			assertEquals(1, GraphCache.shared().size(), "Cached maps: ");
+			GraphCache.shared().setCapacityBytes(0);
+			assertEquals(0, GraphCache.shared().size(), "Cached maps without capacity: ");
+			assertEquals(0, GraphCache.shared().getUsedBytes(), "Used bytes without capacity: ");
+			Navigation first = new Navigation(map.toString());
+			Navigation second = new Navigation(map.toString());
+			assertNotSame(first.getGraph(), second.getGraph(), "Map was cached without capacity: ");
+			assertEquals(24, second.findShortestDistance("A", "G"), "From A to G: ");
+			assertEquals(0, GraphCache.shared().size(), "Cached maps without capacity: ");
+		});
+	}
+
+}
@@ -0,0 +1,163 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import lab.GraphSnapshot;
+import lab.Navigation;
+
+public class TestGraphSnapshot {
+
+	private Duration timeout = AllTests.timeout;
+
+	/**
+	 * Writes the map as a snapshot, opens it again and compares all distances
+	 * and times with the Navigation the snapshot was written from.
+	 */
+	private static void testSnapshot(String filename) throws IOException {
+		Navigation lab = new Navigation(filename);
+		Path snapshotFile = Files.createTempFile(filename, ".snapshot");
+		try {
+			lab.writeSnapshot(snapshotFile.toString());
+			GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile.toString());
+			assertTrue(snapshot.matches(lab.getGraph()), "Snapshot of " + filename + " matches its map: ");
+			assertEquals(lab.getGraph().nodeCount(), snapshot.nodeCount(), "Number of nodes: ");
+			for (int i = 0; i < lab.getGraph().nodeCount(); i++) {
+				String start = lab.getGraph().getName(i);
+				for (int j = 0; j < lab.getGraph().nodeCount(); j++) {
+					String stop = lab.getGraph().getName(j);
+					assertEquals(lab.findShortestDistance(start, stop), snapshot.findShortestDistance(start, stop),
+							"From " + start + " to " + stop + ": ");
+					assertEquals(lab.findFastestTime(start, stop), snapshot.findFastestTime(start, stop),
+							"From " + start + " to " + stop + ": ");
+				}
+			}
+		} finally {
+			Files.delete(snapshotFile);
+		}
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile1() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile1");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile2() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile2");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile3() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile3");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile4() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile4");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile5() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile5");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_TestFile6() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testSnapshot("TestFile6");
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_NotOnMap() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			Path snapshotFile = Files.createTempFile("TestFile1", ".snapshot");
+			try {
+				lab.writeSnapshot(snapshotFile.toString());
+				GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile.toString());
+				assertEquals(-1, snapshot.findNode("NotOnMap"), "Id of a node that is not on the map: ");
+				assertEquals(Navigation.SOURCE_NOT_FOUND, snapshot.findShortestDistance("NotOnMap", "A"), "From NotOnMap to A: ");
+				assertEquals(Navigation.DESTINATION_NOT_FOUND, snapshot.findFastestTime("A", "NotOnMap"), "From A to NotOnMap: ");
+				assertEquals(Navigation.SOURCE_DESTINATION_NOT_FOUND, snapshot.findShortestDistance("NotOnMap", "AlsoNotOnMap"),
+						"From NotOnMap to AlsoNotOnMap: ");
+				assertEquals(Navigation.NO_PATH, snapshot.findFastestTime("B", "A"), "Test non-existing path B->A: ");
+				assertFalse(snapshot.matches(new Navigation("TestFile2").getGraph()), "Snapshot of TestFile1 matches TestFile2: ");
+			} finally {
+				Files.delete(snapshotFile);
+			}
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_Truncated() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path snapshotFile = Files.createTempFile("TestFile1", ".snapshot");
+			try {
+				new Navigation("TestFile1").writeSnapshot(snapshotFile.toString());
+				byte[] bytes = Files.readAllBytes(snapshotFile);
+				Files.write(snapshotFile, Arrays.copyOf(bytes, bytes.length - 8));
+				assertThrows(IOException.class, () -> GraphSnapshot.open(snapshotFile.toString()), "Truncated snapshot: ");
+				Files.write(snapshotFile, Arrays.copyOf(bytes, 12));
+				assertThrows(IOException.class, () -> GraphSnapshot.open(snapshotFile.toString()), "Truncated header: ");
+			} finally {
+				Files.delete(snapshotFile);
+			}
+		});
+	}
+
+	@Test
+	public void TestGraphSnapshot_Corrupt() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Path snapshotFile = Files.createTempFile("TestFile1", ".snapshot");
+			try {
+				new Navigation("TestFile1").writeSnapshot(snapshotFile.toString());
+				byte[] bytes = Files.readAllBytes(snapshotFile);
+				ByteBuffer header = ByteBuffer.wrap(bytes);
+				int n = header.getInt(8);
+				int nameBytes = header.getInt(24);
+				int sortedIds = 28 + 4 * (n + 1) + nameBytes;
+				int offsets = sortedIds + 4 * n;
+				int targets = offsets + 4 * (n + 1);
+				String[] tables = { "name index", "edge offsets", "edge targets" };
+				int[] positions = { sortedIds, offsets + 4, targets };
+				int[] values = { n, -1, n + 3 };
+				for (int i = 0; i < tables.length; i++) {
+					ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+					corrupt.putInt(positions[i], values[i]);
+					Files.write(snapshotFile, corrupt.array());
+					assertThrows(IOException.class, () -> GraphSnapshot.open(snapshotFile.toString()),
+							"Snapshot with a corrupt " + tables[i] + ": ");
+				}
+				Files.write(snapshotFile, bytes);
+				assertEquals(24, GraphSnapshot.open(snapshotFile.toString()).findShortestDistance("A", "G"), "From A to G: ");
+			} finally {
+				Files.delete(snapshotFile);
+			}
+		});
+	}
+
+}
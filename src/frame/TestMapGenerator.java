@@ -0,0 +1,80 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import lab.Landmarks;
+import lab.MapGenerator;
+import lab.Navigation;
+import lab.SearchMode;
+
+public class TestMapGenerator {
+
+	private Duration timeout = AllTests.timeout;
+
+	/**
+	 * Generates a map with a fixed seed, writes it with its expected answers
+	 * and checks every answer in every search mode.
+	 */
+	private static void testExpected(MapGenerator.Shape shape) throws Exception {
+		Path directory = Files.createTempDirectory("generated");
+		Path map = directory.resolve(shape.name());
+		Path expected = directory.resolve(shape.name() + ".expected");
+		try {
+			MapGenerator generator = MapGenerator.generate(shape, 600, 7);
+			generator.write(map.toString());
+			generator.writeExpected(expected.toString(), 10, 7);
+			List<String> queries = Files.readAllLines(expected);
+			assertEquals(50, queries.size(), "Number of expected answers: ");
+			for (SearchMode mode : SearchMode.values()) {
+				Navigation lab = new Navigation(map.toString());
+				assertEquals(generator.getNodeCount(), lab.getGraph().nodeCount(), "Number of nodes: ");
+				if (mode == SearchMode.ALT)
+					lab.setLandmarks(Landmarks.compute(lab.getGraph(), 4));
+				if (mode == SearchMode.CONTRACTION_HIERARCHY)
+					lab.useContractionHierarchy();
+				lab.setSearchMode(mode);
+				for (String query : queries) {
+					String[] answer = query.split(" ");
+					assertEquals(Integer.parseInt(answer[2]), lab.findShortestDistance(answer[0], answer[1]),
+							mode + " distance from " + answer[0] + " to " + answer[1] + ": ");
+					assertEquals(Integer.parseInt(answer[3]), lab.findFastestTime(answer[0], answer[1]),
+							mode + " time from " + answer[0] + " to " + answer[1] + ": ");
+				}
+			}
+		} finally {
+			Files.deleteIfExists(expected);
+			Files.deleteIfExists(map);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void TestMapGenerator_Grid() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testExpected(MapGenerator.Shape.GRID);
+		});
+	}
+
+	@Test
+	public void TestMapGenerator_Geometric() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testExpected(MapGenerator.Shape.GEOMETRIC);
+		});
+	}
+
+	@Test
+	public void TestMapGenerator_ScaleFree() {
+		assertTimeoutPreemptively(timeout, () -> {
+			testExpected(MapGenerator.Shape.SCALE_FREE);
+		});
+	}
+
+}
@@ -0,0 +1,62 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import lab.MapParser;
+import lab.Node;
+
+public class TestMapParser {
+
+	private Duration timeout = AllTests.timeout;
+
+	private static LinkedHashMap<String, Node> parse(String... lines) throws Exception {
+		return MapParser.parse(new BufferedReader(new StringReader(String.join("\n", lines))));
+	}
+
+	@Test
+	public void TestMapParser_Edge_Before_Node() {
+		assertTimeoutPreemptively(timeout, () -> {
+			LinkedHashMap<String, Node> nodes = parse("Digraph {", "A -> B [label=\"10,90\"];", "A [label=\"A,1\"];",
+					"B -> A [label=\"12,60\"];", "B [label=\"B,2\"];", "}");
+			assertEquals(2, nodes.size(), "Number of nodes: ");
+			assertEquals(1, nodes.get("A").getEdges().size(), "Edges from A: ");
+			assertEquals("B", nodes.get("A").getEdge(0).getB().getName(), "Edge from A: ");
+			assertEquals(10, nodes.get("A").getEdge(0).getDistance(), "Distance from A to B: ");
+			assertEquals(1, nodes.get("B").getEdges().size(), "Edges from B: ");
+			assertEquals(60, nodes.get("B").getEdge(0).getMaxSpeed(), "Speed limit from B to A: ");
+		});
+	}
+
+	@Test
+	public void TestMapParser_Duplicate_Node() {
+		assertTimeoutPreemptively(timeout, () -> {
+			LinkedHashMap<String, Node> nodes = parse("Digraph {", "A -> B [label=\"10,90\"];", "A [label=\"A,1\"];",
+					"B [label=\"B,2\"];", "A [label=\"A,7\"];", "}");
+			assertEquals(2, nodes.size(), "Number of nodes: ");
+			assertEquals(1, nodes.get("A").getDelay(), "Delay of A: ");
+			assertEquals(1, nodes.get("A").getEdges().size(), "Edges from A: ");
+		});
+	}
+
+	@Test
+	public void TestMapParser_Truncated_Lines() {
+		assertTimeoutPreemptively(timeout, () -> {
+			LinkedHashMap<String, Node> nodes = parse("Digraph {", "A -> B [label=\"10,90\"];", "A -> B", "A ->",
+					"A -> B [label=\"10", "B -> A [label=\"12\"];", "A [label=\"A,1\"];", "B [label=\"B", "B [label=\"B,2\"];",
+					"C [", "}");
+			assertEquals(2, nodes.size(), "Number of nodes: ");
+			assertEquals(2, nodes.get("B").getDelay(), "Delay of B: ");
+			assertEquals(1, nodes.get("A").getEdges().size(), "Edges from A: ");
+			assertEquals(0, nodes.get("B").getEdges().size(), "Edges from B: ");
+		});
+	}
+
+}
@@ -0,0 +1,105 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import lab.LatencyHistogram;
+import lab.Navigation;
+import lab.NavigationStats;
+
+/**
+ * Counting only happens when the JVM runs with -Dlab.stats=true, without it
+ * every counter has to stay 0.
+ */
+public class TestNavigationStats {
+
+	private Duration timeout = AllTests.timeout;
+
+	@Test
+	public void TestNavigationStats_Counters() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			int nodes = lab.getGraph().nodeCount();
+			int edges = lab.getGraph().edgeCount();
+			assertEquals(37, lab.findFastestTime("A", "H"), "From A to H: ");
+			NavigationStats.Snapshot last = NavigationStats.lastQuery();
+			assertEquals(24, lab.findShortestDistance("A", "G"), "From A to G: ");
+			lab.findFastestTimes(Arrays.asList("A", "B", "A", "NotOnMap"), Arrays.asList("C", "H"), false);
+			NavigationStats.Snapshot total = lab.getStats().snapshot();
+			if (!NavigationStats.ENABLED) {
+				assertNull(last, "Last query without -Dlab.stats=true: ");
+				assertEquals(0, total.getQueries(), "Queries without -Dlab.stats=true: ");
+				assertEquals(0, total.getSettledNodes(), "Settled nodes without -Dlab.stats=true: ");
+				assertEquals(0, total.getRelaxedEdges(), "Relaxed edges without -Dlab.stats=true: ");
+				assertEquals(0, total.getQueuePushes(), "Queue pushes without -Dlab.stats=true: ");
+				assertEquals(0, lab.getStats().getQueryLatency().getCount(), "Recorded latencies without -Dlab.stats=true: ");
+				return;
+			}
+			// two queries and one search per distinct source on the map
+			assertEquals(4, total.getQueries(), "Queries: ");
+			assertEquals(4, lab.getStats().getQueryLatency().getCount(), "Recorded latencies: ");
+			assertEquals(1, last.getQueries(), "Queries of the last query: ");
+			assertTrue(last.getSettledNodes() >= 6 && last.getSettledNodes() <= nodes, "Settled nodes from A to H: " + last);
+			assertTrue(last.getRelaxedEdges() <= edges, "Relaxed edges from A to H: " + last);
+			assertTrue(total.getSettledNodes() > last.getSettledNodes(), "Settled nodes of all queries: " + total);
+			assertTrue(total.getQueuePushes() >= total.getSettledNodes() - 4, "Queue pushes of all queries: " + total);
+			lab.getStats().reset();
+			assertEquals(0, lab.getStats().getQueries(), "Queries after reset: ");
+			assertEquals(0, lab.getStats().getQueryLatency().getCount(), "Recorded latencies after reset: ");
+		});
+	}
+
+	@Test
+	public void TestNavigationStats_Histogram() {
+		assertTimeoutPreemptively(timeout, () -> {
+			LatencyHistogram histogram = new LatencyHistogram();
+			assertEquals(0, histogram.getPercentile(50), "Percentile of an empty histogram: ");
+			// values below 32 have a bucket each
+			for (long nanos = 0; nanos < 32; nanos++)
+				histogram.record(nanos);
+			assertEquals(32, histogram.getCount(), "Count: ");
+			assertEquals(15, histogram.getPercentile(50), "Median of 0..31: ");
+			assertEquals(31, histogram.getPercentile(100), "Largest of 0..31: ");
+			// above that a bucket covers 1/32 of its power of two
+			histogram.reset();
+			histogram.record(1000);
+			histogram.record(1005);
+			histogram.record(1_000_000);
+			assertEquals(3, histogram.getCount(), "Count after reset: ");
+			assertEquals(1_002_005, histogram.getSum(), "Sum: ");
+			assertEquals(1_000_000, histogram.getMax(), "Max: ");
+			long median = histogram.getPercentile(50);
+			assertEquals(1007, median, "Median of 1000, 1005 and 1000000: ");
+			assertEquals(1_000_000, histogram.getPercentile(100), "Largest value: ");
+			assertEquals(histogram.getPercentile(1), histogram.getPercentile(50), "1000 and 1005 share a bucket: ");
+		});
+	}
+
+	@Test
+	public void TestNavigationStats_FullExpansion() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			assertEquals(9, lab.findShortestDistance("A", "B"), "From A to B: ");
+			NavigationStats.Snapshot early = NavigationStats.lastQuery();
+			lab.setFullExpansion(true);
+			assertEquals(9, lab.findShortestDistance("A", "B"), "From A to B with full expansion: ");
+			NavigationStats.Snapshot full = NavigationStats.lastQuery();
+			if (!NavigationStats.ENABLED) {
+				assertNull(early, "Last query without -Dlab.stats=true: ");
+				assertNull(full, "Last query with full expansion without -Dlab.stats=true: ");
+				return;
+			}
+			// A, C and B are settled before the search stops, with full expansion every node is reachable from A
+			assertEquals(3, early.getSettledNodes(), "Settled nodes from A to B: " + early);
+			assertEquals(lab.getGraph().nodeCount(), full.getSettledNodes(), "Settled nodes from A to B with full expansion: " + full);
+		});
+	}
+
+}
@@ -0,0 +1,57 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import lab.Landmarks;
+import lab.LazyHeapQueue;
+import lab.Navigation;
+import lab.SearchMode;
+
+/**
+ * Every search mode and queue has to give the answers of the plain Dijkstra
+ * search, for every pair of nodes on every test map.
+ */
+public class TestSearchModes {
+
+	private Duration timeout = AllTests.timeout;
+
+	private static final String[] maps = { "TestFile1", "TestFile2", "TestFile3", "TestFile4", "TestFile5", "TestFile6" };
+
+	static ArrayList<Arguments> configurations() {
+		ArrayList<Arguments> configurations = new ArrayList<Arguments>();
+		for (String map : maps) {
+			configurations.add(Arguments.of(map, "LazyQueue",
+					(Consumer<Navigation>) lab -> lab.setQueueStrategy(LazyHeapQueue::new)));
+			configurations.add(Arguments.of(map, "FullExpansion",
+					(Consumer<Navigation>) lab -> lab.setFullExpansion(true)));
+			configurations.add(Arguments.of(map, "Bidirectional",
+					(Consumer<Navigation>) lab -> lab.setSearchMode(SearchMode.BIDIRECTIONAL)));
+			configurations.add(Arguments.of(map, "ALT", (Consumer<Navigation>) lab -> {
+				lab.setLandmarks(Landmarks.compute(lab.getGraph(), 4));
+				lab.setSearchMode(SearchMode.ALT);
+			}));
+			configurations.add(Arguments.of(map, "ContractionHierarchy", (Consumer<Navigation>) lab -> {
+				lab.useContractionHierarchy();
+				lab.setSearchMode(SearchMode.CONTRACTION_HIERARCHY);
+			}));
+		}
+		return configurations;
+	}
+
+	@ParameterizedTest(name = "{0}_{1}")
+	@MethodSource("configurations")
+	public void TestSearchModes_SameAnswers(String map, String configuration, Consumer<Navigation> configure) {
+		assertTimeoutPreemptively(timeout, () -> {
+			assertTrue(AllTests.testSameAnswers(map, configure), "Answers of " + configuration + " on " + map + ": ");
+		});
+	}
+}
@@ -0,0 +1,92 @@
+package frame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import lab.Navigation;
+
+public class TestWriteRoute {
+
+	private Duration timeout = AllTests.timeout;
+
+	/**
+	 * Writes the shortest and the fastest route from start to stop through
+	 * every overload and compares the output with the lines of
+	 * findShortestRoute and findFastestRoute.
+	 */
+	private static void testWrite(Navigation lab, String start, String stop) throws Exception {
+		String shortest = String.join("\n", lab.findShortestRoute(start, stop)) + "\n";
+		String fastest = String.join("\n", lab.findFastestRoute(start, stop)) + "\n";
+
+		StringWriter writer = new StringWriter();
+		lab.writeShortestRoute(start, stop, writer);
+		assertEquals(shortest, writer.toString(), "Shortest route written to a Writer: ");
+		writer = new StringWriter();
+		lab.writeFastestRoute(start, stop, writer);
+		assertEquals(fastest, writer.toString(), "Fastest route written to a Writer: ");
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		lab.writeShortestRoute(start, stop, stream);
+		assertEquals(shortest, new String(stream.toByteArray(), StandardCharsets.UTF_8), "Shortest route written to an OutputStream: ");
+		stream = new ByteArrayOutputStream();
+		lab.writeFastestRoute(start, stop, stream);
+		assertEquals(fastest, new String(stream.toByteArray(), StandardCharsets.UTF_8), "Fastest route written to an OutputStream: ");
+
+		stream = new ByteArrayOutputStream();
+		lab.writeShortestRoute(start, stop, Channels.newChannel(stream));
+		assertEquals(shortest, new String(stream.toByteArray(), StandardCharsets.UTF_8), "Shortest route written to a channel: ");
+		stream = new ByteArrayOutputStream();
+		lab.writeFastestRoute(start, stop, Channels.newChannel(stream));
+		assertEquals(fastest, new String(stream.toByteArray(), StandardCharsets.UTF_8), "Fastest route written to a channel: ");
+	}
+
+	@Test
+	public void TestWriteRoute_TestFile1() {
+		assertTimeoutPreemptively(timeout, () -> {
+			Navigation lab = new Navigation("TestFile1");
+			testWrite(lab, "A", "H");
+			testWrite(lab, "B", "A");
+			testWrite(lab, "A", "NotOnMap");
+		});
+	}
+
+	@Test
+	public void TestWriteRoute_Large_Map() {
+		assertTimeoutPreemptively(timeout, () -> {
+			// a chain of 300 nodes with non-ASCII names from S to T, far more than one 8 KB chunk
+			StringBuilder map = new StringBuilder("Digraph {\n");
+			map.append("S -> Stra\u00dfe0 [label=\"5,100\"];\n");
+			for (int i = 0; i + 1 < 300; i++)
+				map.append("Stra\u00dfe" + i + " -> Stra\u00dfe" + (i + 1) + " [label=\"5,100\"];\n");
+			map.append("Stra\u00dfe299 -> T [label=\"5,100\"];\n");
+			map.append("S -> T [label=\"2000,50\"];\n");
+			map.append("S [label=\"S,1\"];\n");
+			for (int i = 0; i < 300; i++)
+				map.append("Stra\u00dfe" + i + " [label=\"Stra\u00dfe" + i + ",1\"];\n");
+			map.append("T [label=\"T,1\"];\n}");
+			Path file = Files.createTempFile("large", ".dot");
+			try {
+				Files.write(file, map.toString().getBytes(StandardCharsets.UTF_8));
+				Navigation lab = new Navigation(file.toString());
+				assertEquals(1505, lab.findShortestDistance("S", "T"), "From S to T: ");
+				assertTrue(String.join("\n", lab.findShortestRoute("S", "T")).getBytes(StandardCharsets.UTF_8).length > 8192,
+						"Map is larger than one chunk: ");
+				testWrite(lab, "S", "T");
+			} finally {
+				Files.delete(file);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,57 @@
+package lab;
+
+/**
+ * A* search: Dijkstra where the queue is ordered by the distance from the
+ * source plus a lower bound on the distance to the destination, so nodes
+ * leading away from the destination are settled later or not at all.
+ */
+class AStarSearch {
+
+    private AStarSearch(){}
+
+    /**
+     * @param g
+     *      the graph to search
+     * @param source
+     *      id of the start node
+     * @param target
+     *      id of the destination node
+     * @param costs
+     *      the metric to minimise
+     * @param heuristic
+     *      consistent lower bound on the distance to target
+     * @param context
+     *      holds distances and the path afterwards
+     * @return
+     *      true if the target was reached
+     */
+    static boolean search(CompactGraph g, int source, int target, CostTable costs, Heuristic heuristic, SearchContext context){
+        context.start(source);
+        while(!context.queue.isEmpty()){
+            int u = context.queue.poll();
+            if(NavigationStats.ENABLED)
+                context.settled++;
+            if(u == target)
+                return true;
+            double departure = context.distance[u] + costs.departure[u];
+            double[] weight = costs.edge;
+            if(NavigationStats.ENABLED)
+                context.relaxed += g.offsets[u + 1] - g.offsets[u];
+            for(int e = g.offsets[u], last = g.offsets[u + 1]; e < last; e++){
+                int v = g.targets[e];
+                double candidate = departure + weight[e];
+                if(candidate < context.getDistance(v)){
+                    double estimate = heuristic.estimate(v);
+                    //the heuristic may already know that target can not be reached from v
+                    if(estimate == Double.POSITIVE_INFINITY)
+                        continue;
+                    if(NavigationStats.ENABLED)
+                        context.countPush(v);
+                    context.set(v, candidate, u);
+                    context.queue.push(v, candidate + estimate);
+                }
+            }
+        }
+        return false;
+    }
+}
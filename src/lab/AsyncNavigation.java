@@ -0,0 +1,145 @@
+package lab;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous front end for one loaded Navigation. Queries are run on a
+ * configurable executor and completed as CompletableFutures, all of them share
+ * the same map.
+ *
+ * At most maxPending queries are queued or running at the same time. Submitting
+ * another one blocks the caller until an earlier query has completed, so a fast
+ * producer cannot flood the executor.
+ *
+ * Closing shuts down the executor if this instance created it, an executor
+ * passed in is left to the caller.
+ */
+public class AsyncNavigation implements AutoCloseable {
+    private final Navigation navigation;
+    private final Executor executor;
+    private final ExecutorService owned;
+    private final Semaphore pending;
+    private volatile boolean closed;
+
+    /**
+     * @param navigation
+     *      the map to query
+     * @param executor
+     *      runs the queries
+     * @param maxPending
+     *      maximum number of queries that are queued or running at once
+     */
+    public AsyncNavigation(Navigation navigation, Executor executor, int maxPending){
+        this(navigation, executor, null, maxPending);
+    }
+
+    private AsyncNavigation(Navigation navigation, Executor executor, ExecutorService owned, int maxPending){
+        if(maxPending < 1)
+            throw new IllegalArgumentException("maxPending must be at least 1: " + maxPending);
+        this.navigation = navigation;
+        this.executor = executor;
+        this.owned = owned;
+        this.pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * runs the queries on the common ForkJoinPool
+     */
+    public static AsyncNavigation withForkJoinPool(Navigation navigation, int maxPending){
+        return new AsyncNavigation(navigation, ForkJoinPool.commonPool(), maxPending);
+    }
+
+    /**
+     * runs every query on its own virtual thread, needs Java 21 or newer
+     * @throws UnsupportedOperationException
+     *      if the running JVM has no virtual threads
+     */
+    public static AsyncNavigation withVirtualThreads(Navigation navigation, int maxPending){
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new AsyncNavigation(navigation, executor, executor, maxPending);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e){
+            throw new UnsupportedOperationException("virtual threads are not available on this JVM", e);
+        }
+    }
+
+    /**
+     * @see Navigation#findShortestRoute(String, String)
+     */
+    public CompletableFuture<ArrayList<String>> findShortestRoute(String A, String B){
+        return submit(() -> navigation.findShortestRoute(A, B));
+    }
+
+    /**
+     * @see Navigation#findFastestRoute(String, String)
+     */
+    public CompletableFuture<ArrayList<String>> findFastestRoute(String A, String B){
+        return submit(() -> navigation.findFastestRoute(A, B));
+    }
+
+    /**
+     * @see Navigation#findShortestDistance(String, String)
+     */
+    public CompletableFuture<Integer> findShortestDistance(String A, String B){
+        return submit(() -> navigation.findShortestDistance(A, B));
+    }
+
+    /**
+     * @see Navigation#findFastestTime(String, String)
+     */
+    public CompletableFuture<Integer> findFastestTime(String pointA, String pointB){
+        return submit(() -> navigation.findFastestTime(pointA, pointB));
+    }
+
+    /**
+     * @return
+     *      number of queries that can still be submitted without blocking
+     */
+    public int availableSlots(){
+        return pending.availablePermits();
+    }
+
+    /**
+     * rejects further queries and shuts down the executor if this instance created it. Queries already
+     * submitted still complete
+     */
+    @Override
+    public void close(){
+        closed = true;
+        if(owned != null)
+            owned.shutdown();
+    }
+
+    /**
+     * waits for a free slot and hands the query to the executor. The slot is freed when the query completes,
+     * before the returned future completes
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> query){
+        if(closed)
+            throw new RejectedExecutionException("AsyncNavigation is closed");
+        try {
+            pending.acquire();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        try {
+            return CompletableFuture.supplyAsync(query, executor).whenComplete((value, error) -> pending.release());
+        } catch (RejectedExecutionException e){
+            pending.release();
+            throw e;
+        }
+    }
+}
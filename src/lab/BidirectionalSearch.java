@@ -0,0 +1,120 @@
+package lab;
+
+/**
+ * Bidirectional Dijkstra: one search runs forward from the source, another
+ * one backward from the destination over the reversed edges, always
+ * expanding the side with the smaller queue key. It stops once the two
+ * smallest keys add up to at least the best source-destination distance seen
+ * at a node labelled by both searches.
+ *
+ * An edge u -> v weighs the departure cost of u plus its edge cost, so the
+ * backward search sees exactly the forward weights.
+ */
+class BidirectionalSearch {
+
+    private BidirectionalSearch(){}
+
+    /**
+     * @param g
+     *      the graph to search
+     * @param source
+     *      id of the start node
+     * @param target
+     *      id of the destination node
+     * @param costs
+     *      the metric to minimise
+     * @param forward
+     *      context of the forward search, holds the complete path from source to target afterwards
+     * @param backward
+     *      context of the backward search, its previous entries point towards target
+     * @return
+     *      true if the target was reached
+     */
+    static boolean search(CompactGraph g, int source, int target, CostTable costs,
+                          SearchContext forward, SearchContext backward){
+        forward.start(source);
+        backward.start(target);
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+
+        while(true){
+            double forwardKey = forward.queue.minKey();
+            double backwardKey = backward.queue.minKey();
+            if(forwardKey + backwardKey >= best || (forwardKey == Double.POSITIVE_INFINITY && backwardKey == Double.POSITIVE_INFINITY))
+                break;
+            if(forwardKey <= backwardKey){
+                int u = forward.queue.poll();
+                double departure = forward.distance[u] + costs.departure[u];
+                double[] weight = costs.edge;
+                if(NavigationStats.ENABLED){
+                    forward.settled++;
+                    forward.relaxed += g.offsets[u + 1] - g.offsets[u];
+                }
+                for(int e = g.offsets[u], last = g.offsets[u + 1]; e < last; e++){
+                    int v = g.targets[e];
+                    double candidate = departure + weight[e];
+                    if(candidate < forward.getDistance(v)){
+                        if(NavigationStats.ENABLED)
+                            forward.countPush(v);
+                        forward.set(v, candidate, u);
+                        forward.queue.push(v, candidate);
+                    }
+                    double through = forward.getDistance(v) + backward.getDistance(v);
+                    if(through < best){
+                        best = through;
+                        meeting = v;
+                    }
+                }
+            }
+            else{
+                int v = backward.queue.poll();
+                double arrival = backward.distance[v];
+                if(NavigationStats.ENABLED){
+                    backward.settled++;
+                    backward.relaxed += g.reverseOffsets[v + 1] - g.reverseOffsets[v];
+                }
+                for(int r = g.reverseOffsets[v], last = g.reverseOffsets[v + 1]; r < last; r++){
+                    int e = g.reverseEdges[r];
+                    int u = g.sources[e];
+                    double candidate = (costs.departure[u] + costs.edge[e]) + arrival;
+                    if(candidate < backward.getDistance(u)){
+                        if(NavigationStats.ENABLED)
+                            backward.countPush(u);
+                        backward.set(u, candidate, v);
+                        backward.queue.push(u, candidate);
+                    }
+                    double through = forward.getDistance(u) + backward.getDistance(u);
+                    if(through < best){
+                        best = through;
+                        meeting = u;
+                    }
+                }
+            }
+        }
+        if(meeting < 0)
+            return false;
+        joinAt(g, meeting, costs, forward, backward);
+        return true;
+    }
+
+    /**
+     * extends the forward path from meeting to the target along the backward search tree. Distances are
+     * added up again in driving order, so they are the same numbers the unidirectional search computes
+     */
+    private static void joinAt(CompactGraph g, int meeting, CostTable costs, SearchContext forward, SearchContext backward){
+        int u = meeting;
+        int v = backward.getPrevious(u);
+        while(v >= 0){
+            double departure = forward.getDistance(u) + costs.departure[u];
+            double[] weight = costs.edge;
+            double arrival = Double.POSITIVE_INFINITY;
+            for(int e = g.offsets[u], last = g.offsets[u + 1]; e < last; e++){
+                if(g.targets[e] == v && departure + weight[e] < arrival)
+                    arrival = departure + weight[e];
+            }
+            forward.set(v, arrival, u);
+            u = v;
+            v = backward.getPrevious(u);
+        }
+    }
+}
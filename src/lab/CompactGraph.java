@@ -0,0 +1,452 @@
+package lab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable compressed-sparse-row copy of a parsed map.
+ *
+ * Nodes are identified by their id (index in the node list), the outgoing
+ * edges of node u are the edge slots offsets[u] until offsets[u + 1] - 1.
+ * Edge weights are stored in primitive arrays, including the travel time
+ * in minutes, so the path search never has to touch Node or Edge objects.
+ * The parsed Node and Edge objects are not kept, names are looked up in an
+ * open addressing table of node ids (see findNode).
+ *
+ * Coordinates are kept in x and y, NaN for nodes without; both are null if no
+ * node has coordinates.
+ *
+ * The incoming edges of node v are listed in reverseEdges from
+ * reverseOffsets[v] until reverseOffsets[v + 1] - 1, as slots of the
+ * forward arrays, so backward searches share the same weights.
+ *
+ * Weight updates never change a graph, they create the next version of it
+ * (see withWeights), so a search always sees one consistent set of weights.
+ *
+ * Edges can have a speed profile for time-dependent searches. Every distinct
+ * profile is kept once in profiles and profileOf holds its index per edge
+ * slot (-1 for none); both are null if no edge has a profile.
+ */
+public class CompactGraph {
+    final String[] names;
+    final double[] delay;
+    final int[] offsets;
+    final int[] targets;
+    final double[] distance;
+    final double[] maxSpeed;
+    final double[] minutes;
+    final double[] x;
+    final double[] y;
+    final boolean allPositions;
+    //node id + 1 per slot, 0 for an empty slot, the length is a power of two
+    private final int[] nameTable;
+    final double topSpeed;
+    final int[] sources;
+    final int[] reverseOffsets;
+    final int[] reverseEdges;
+    final long version;
+    final SpeedProfile[] profiles;
+    final int[] profileOf;
+    private final ConcurrentHashMap<Metric, CostTable> costTables = new ConcurrentHashMap<>();
+    //travel time functions of the edges with a profile, made on first use. Races only make one twice
+    private TravelTimeFunction[] functions;
+
+    private CompactGraph(String[] names, double[] delay, int[] offsets, int[] targets, double[] distance,
+                         double[] maxSpeed, double[] minutes, double[] x, double[] y){
+        this.names = names;
+        this.delay = delay;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distance = distance;
+        this.maxSpeed = maxSpeed;
+        this.minutes = minutes;
+        this.x = x;
+        this.y = y;
+        this.allPositions = x != null && allPositions(x);
+        this.nameTable = nameTable(names);
+        this.topSpeed = topSpeed(maxSpeed);
+        this.version = 0;
+        //a parsed map has no profiles, they only come with a WeightUpdate
+        this.profileOf = null;
+        this.profiles = null;
+
+        int n = names.length;
+        int m = targets.length;
+        this.sources = new int[m];
+        this.reverseOffsets = new int[n + 1];
+        this.reverseEdges = new int[m];
+        for(int u = 0; u < n; u++){
+            for(int e = offsets[u]; e < offsets[u + 1]; e++){
+                sources[e] = u;
+                reverseOffsets[targets[e] + 1]++;
+            }
+        }
+        for(int v = 0; v < n; v++)
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        int[] fill = new int[n];
+        for(int e = 0; e < m; e++){
+            int v = targets[e];
+            reverseEdges[reverseOffsets[v] + fill[v]++] = e;
+        }
+    }
+
+    /**
+     * copy of base with other weights, sharing names, edges and coordinates
+     */
+    private CompactGraph(CompactGraph base, double[] delay, double[] distance, double[] maxSpeed,
+                         SpeedProfile[] profiles, int[] profileOf){
+        this.names = base.names;
+        this.delay = delay;
+        this.offsets = base.offsets;
+        this.targets = base.targets;
+        this.distance = distance;
+        this.maxSpeed = maxSpeed;
+        this.minutes = new double[distance.length];
+        for(int e = 0; e < distance.length; e++)
+            minutes[e] = distance[e] / maxSpeed[e] * 60;
+        this.x = base.x;
+        this.y = base.y;
+        this.allPositions = base.allPositions;
+        this.nameTable = base.nameTable;
+        this.topSpeed = topSpeed(maxSpeed);
+        this.sources = base.sources;
+        this.reverseOffsets = base.reverseOffsets;
+        this.reverseEdges = base.reverseEdges;
+        this.version = base.version + 1;
+        this.profiles = profiles;
+        this.profileOf = profileOf;
+    }
+
+    private static boolean allPositions(double[] x){
+        for(int u = 0; u < x.length; u++)
+            if(Double.isNaN(x[u]))
+                return false;
+        return true;
+    }
+
+    private static int[] nameTable(String[] names){
+        int[] table = new int[Integer.highestOneBit(Math.max(2 * names.length, 1)) << 1];
+        int mask = table.length - 1;
+        for(int u = 0; u < names.length; u++){
+            int slot = slot(names[u], mask);
+            while(table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = u + 1;
+        }
+        return table;
+    }
+
+    private static int slot(String name, int mask){
+        int h = name.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static double topSpeed(double[] maxSpeed){
+        double top = 0;
+        for(int e = 0; e < maxSpeed.length; e++)
+            top = Math.max(top, maxSpeed[e]);
+        return top;
+    }
+
+    /**
+     * builds the arrays from the parsed nodes
+     * @param nodes
+     *      every node of the map, node i has to have the id i
+     * @return
+     *      the compact graph
+     */
+    public static CompactGraph build(List<Node> nodes){
+        int n = nodes.size();
+        int m = 0;
+        for(int i = 0; i < n; i++)
+            m += nodes.get(i).getEdges().size();
+
+        String[] names = new String[n];
+        double[] delay = new double[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] distance = new double[m];
+        double[] maxSpeed = new double[m];
+        double[] minutes = new double[m];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        boolean anyPosition = false;
+
+        int e = 0;
+        for(int u = 0; u < n; u++){
+            Node node = nodes.get(u);
+            names[u] = node.getName();
+            delay[u] = node.getDelay();
+            x[u] = node.hasPosition() ? node.getX() : Double.NaN;
+            y[u] = node.hasPosition() ? node.getY() : Double.NaN;
+            anyPosition |= node.hasPosition();
+            offsets[u] = e;
+            for(int j = 0; j < node.getEdges().size(); j++){
+                Edge edge = node.getEdge(j);
+                targets[e] = edge.getB().getId();
+                distance[e] = edge.getDistance();
+                maxSpeed[e] = edge.getMaxSpeed();
+                minutes[e] = edge.getDistance() / edge.getMaxSpeed() * 60;
+                e++;
+            }
+        }
+        offsets[n] = e;
+        if(!anyPosition){
+            x = null;
+            y = null;
+        }
+        return new CompactGraph(names, delay, offsets, targets, distance, maxSpeed, minutes, x, y);
+    }
+
+    /**
+     * @param profile
+     *      speed profile per edge slot (null entries for none), or null to keep the profiles of this map
+     * @return
+     *      the next version of this map, with the given weights and the same nodes and edges. The arrays are
+     *      taken over, not copied
+     */
+    CompactGraph withWeights(double[] delay, double[] distance, double[] maxSpeed, SpeedProfile[] profile){
+        if(profile == null)
+            return new CompactGraph(this, delay, distance, maxSpeed, profiles, profileOf);
+        ArrayList<SpeedProfile> table = new ArrayList<>();
+        int[] profileOf = shareProfiles(profile, table);
+        return new CompactGraph(this, delay, distance, maxSpeed,
+                profileOf == null ? null : table.toArray(new SpeedProfile[0]), profileOf);
+    }
+
+    /**
+     * lists every distinct profile once in table
+     * @param profile
+     *      profile per edge slot, null entries for none
+     * @return
+     *      index in table per edge slot, -1 for none, or null if no edge has a profile
+     */
+    private static int[] shareProfiles(SpeedProfile[] profile, ArrayList<SpeedProfile> table){
+        HashMap<SpeedProfile, Integer> index = new HashMap<>();
+        int[] profileOf = new int[profile.length];
+        for(int e = 0; e < profile.length; e++){
+            if(profile[e] == null)
+                profileOf[e] = -1;
+            else{
+                Integer i = index.get(profile[e]);
+                if(i == null){
+                    i = table.size();
+                    index.put(profile[e], i);
+                    table.add(profile[e]);
+                }
+                profileOf[e] = i;
+            }
+        }
+        return table.isEmpty() ? null : profileOf;
+    }
+
+    /**
+     * @return
+     *      0 for a parsed map, one more for every update of its weights
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * @return
+     *      the costs of metric on this map, evaluated on first use
+     */
+    CostTable costs(Metric metric){
+        CostTable table = costTables.get(metric);
+        if(table == null){
+            table = metric.createTable(this);
+            CostTable raced = costTables.putIfAbsent(metric, table);
+            if(raced != null)
+                table = raced;
+        }
+        return table;
+    }
+
+    /**
+     * @return
+     *      hash over names, topology and weights, used to check that precomputed data belongs to this map
+     */
+    public long fingerprint(){
+        long h = names.length;
+        h = 31 * h + Arrays.hashCode(names);
+        h = 31 * h + Arrays.hashCode(delay);
+        h = 31 * h + Arrays.hashCode(offsets);
+        h = 31 * h + Arrays.hashCode(targets);
+        h = 31 * h + Arrays.hashCode(distance);
+        h = 31 * h + Arrays.hashCode(maxSpeed);
+        return h;
+    }
+
+    public int nodeCount(){
+        return names.length;
+    }
+
+    public int edgeCount(){
+        return targets.length;
+    }
+
+    public String getName(int node){
+        return names[node];
+    }
+
+    /**
+     * @return
+     *      id of the node called name, -1 if it is not on the map
+     */
+    public int findNode(String name){
+        int mask = nameTable.length - 1;
+        for(int slot = slot(name, mask); ; slot = (slot + 1) & mask){
+            int node = nameTable[slot] - 1;
+            if(node < 0 || names[node].equals(name))
+                return node;
+        }
+    }
+
+    public double getDelay(int node){
+        return delay[node];
+    }
+
+    /**
+     * @return
+     *      true if every node of the map has coordinates
+     */
+    public boolean hasPositions(){
+        return allPositions;
+    }
+
+    /**
+     * @return
+     *      true if node has coordinates
+     */
+    public boolean hasPosition(int node){
+        return x != null && !Double.isNaN(x[node]);
+    }
+
+    public double getX(int node){
+        return x[node];
+    }
+
+    public double getY(int node){
+        return y[node];
+    }
+
+    /**
+     * @return
+     *      highest maximum speed of all edges
+     */
+    public double getTopSpeed(){
+        return topSpeed;
+    }
+
+    /**
+     * @return
+     *      first edge slot of node
+     */
+    public int firstEdge(int node){
+        return offsets[node];
+    }
+
+    /**
+     * @return
+     *      edge slot after the last outgoing edge of node
+     */
+    public int endEdge(int node){
+        return offsets[node + 1];
+    }
+
+    /**
+     * @return
+     *      first slot in the reverse edge list of node
+     */
+    public int firstReverseEdge(int node){
+        return reverseOffsets[node];
+    }
+
+    /**
+     * @return
+     *      slot after the last incoming edge of node in the reverse edge list
+     */
+    public int endReverseEdge(int node){
+        return reverseOffsets[node + 1];
+    }
+
+    /**
+     * @return
+     *      the edge stored at slot of the reverse edge list
+     */
+    public int getReverseEdge(int slot){
+        return reverseEdges[slot];
+    }
+
+    public int getSource(int edge){
+        return sources[edge];
+    }
+
+    public int getTarget(int edge){
+        return targets[edge];
+    }
+
+    public double getDistance(int edge){
+        return distance[edge];
+    }
+
+    public double getMaxSpeed(int edge){
+        return maxSpeed[edge];
+    }
+
+    /**
+     * @return
+     *      time in minutes to drive along edge at its maximum speed
+     */
+    public double getMinutes(int edge){
+        return minutes[edge];
+    }
+
+    /**
+     * @return
+     *      true if at least one edge has a speed profile
+     */
+    public boolean hasProfiles(){
+        return profiles != null;
+    }
+
+    /**
+     * @return
+     *      speed profile of edge, null if it can always be driven at its maximum speed
+     */
+    public SpeedProfile getProfile(int edge){
+        return profileOf == null || profileOf[edge] < 0 ? null : profiles[profileOf[edge]];
+    }
+
+    /**
+     * @param departure
+     *      minutes after midnight at which edge is entered
+     * @return
+     *      time in minutes to drive along edge, following its speed profile if it has one
+     */
+    double travelTime(int edge, double departure){
+        if(profileOf == null || profileOf[edge] < 0)
+            return minutes[edge];
+        return profiles[profileOf[edge]].travelTime(minutes[edge], departure);
+    }
+
+    /**
+     * @return
+     *      time in minutes to drive along edge for every departure time, see SpeedProfile.travelTimeFunction
+     */
+    TravelTimeFunction travelTimeFunction(int edge){
+        if(profileOf == null || profileOf[edge] < 0)
+            return TravelTimeFunction.constant(minutes[edge]);
+        TravelTimeFunction[] cache = functions;
+        if(cache == null)
+            functions = cache = new TravelTimeFunction[targets.length];
+        TravelTimeFunction function = cache[edge];
+        if(function == null)
+            cache[edge] = function = profiles[profileOf[edge]].travelTimeFunction(minutes[edge]);
+        return function;
+    }
+}
@@ -0,0 +1,513 @@
+package lab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Contraction Hierarchies for the travel time metric.
+ *
+ * Preprocessing contracts the nodes one by one, cheapest first (edge
+ * difference plus number of contracted neighbours). Contracting a node only
+ * changes the priorities of its neighbours, they are computed again when
+ * they reach the front of the queue. Contracting v removes it
+ * from the remaining graph and adds a shortcut u -> w for every path
+ * u -> v -> w unless a local witness search finds a path that is not longer.
+ * A query then runs a bidirectional Dijkstra that only goes upwards in the
+ * contraction order and meets at the highest node of the shortest path.
+ *
+ * An edge u -> v weighs the delay of u plus its travel minutes, a shortcut
+ * the sum of the two arcs it replaces. Shortcuts remember those arcs, so a
+ * result is unpacked into original edges and its time added up again in
+ * driving order, exactly as the plain search does.
+ */
+public class ContractionHierarchy {
+    //nodes a witness search may settle while choosing the order, and while actually contracting
+    private static final int PRIORITY_WITNESS_LIMIT = 50;
+    private static final int CONTRACTION_WITNESS_LIMIT = 500;
+
+    private final long fingerprint;
+    private final int[] rank;
+    //arcs are original edges (edge >= 0) or shortcuts made of the arcs first and second
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final double[] arcWeight;
+    private final int[] arcEdge;
+    private final int[] arcFirst;
+    private final int[] arcSecond;
+    //arcs u -> w with rank[w] > rank[u], stored at u
+    private final int[] upOffsets;
+    private final int[] upArcs;
+    //arcs x -> v with rank[x] > rank[v], stored at v
+    private final int[] downOffsets;
+    private final int[] downArcs;
+
+    private ContractionHierarchy(Builder b){
+        this.fingerprint = b.g.fingerprint();
+        this.rank = b.rank;
+        this.arcFrom = Arrays.copyOf(b.from, b.arcCount);
+        this.arcTo = Arrays.copyOf(b.to, b.arcCount);
+        this.arcWeight = Arrays.copyOf(b.weight, b.arcCount);
+        this.arcEdge = Arrays.copyOf(b.edge, b.arcCount);
+        this.arcFirst = Arrays.copyOf(b.first, b.arcCount);
+        this.arcSecond = Arrays.copyOf(b.second, b.arcCount);
+
+        int n = b.n;
+        this.upOffsets = new int[n + 1];
+        this.downOffsets = new int[n + 1];
+        for(int a = 0; a < b.arcCount; a++){
+            if(b.dead[a])
+                continue;
+            if(rank[arcFrom[a]] < rank[arcTo[a]])
+                upOffsets[arcFrom[a] + 1]++;
+            else
+                downOffsets[arcTo[a] + 1]++;
+        }
+        for(int v = 0; v < n; v++){
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        this.upArcs = new int[upOffsets[n]];
+        this.downArcs = new int[downOffsets[n]];
+        int[] upFill = new int[n];
+        int[] downFill = new int[n];
+        for(int a = 0; a < b.arcCount; a++){
+            if(b.dead[a])
+                continue;
+            if(rank[arcFrom[a]] < rank[arcTo[a]])
+                upArcs[upOffsets[arcFrom[a]] + upFill[arcFrom[a]]++] = a;
+            else
+                downArcs[downOffsets[arcTo[a]] + downFill[arcTo[a]]++] = a;
+        }
+    }
+
+    /**
+     * contracts every node of the map
+     * @param g
+     *      the map
+     * @return
+     *      the hierarchy for the travel time metric
+     */
+    public static ContractionHierarchy build(CompactGraph g){
+        return new Builder(g).build();
+    }
+
+    /**
+     * @return
+     *      true if the hierarchy was built for this map
+     */
+    public boolean matches(CompactGraph g){
+        return fingerprint == g.fingerprint() && rank.length == g.nodeCount();
+    }
+
+    /**
+     * @return
+     *      number of shortcuts added during preprocessing
+     */
+    public int shortcutCount(){
+        int count = 0;
+        for(int a = 0; a < arcEdge.length; a++)
+            if(arcEdge[a] < 0)
+                count++;
+        return count;
+    }
+
+    /**
+     * fastest path from source to target
+     * @param g
+     *      the map the hierarchy was built for
+     * @param forward
+     *      context of the upward search from source, holds the complete unpacked path afterwards
+     * @param backward
+     *      context of the upward search from target
+     * @return
+     *      true if the target was reached
+     */
+    boolean search(CompactGraph g, int source, int target, SearchContext forward, SearchContext backward){
+        //previous entries hold the arc a node was reached by during the search
+        forward.start(source);
+        backward.start(target);
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while(true){
+            double forwardKey = forward.queue.minKey();
+            double backwardKey = backward.queue.minKey();
+            if(Math.min(forwardKey, backwardKey) >= best || (forwardKey == Double.POSITIVE_INFINITY && backwardKey == Double.POSITIVE_INFINITY))
+                break;
+            if(forwardKey <= backwardKey){
+                int u = forward.queue.poll();
+                double distance = forward.distance[u];
+                if(NavigationStats.ENABLED)
+                    forward.settled++;
+                if(distance + backward.getDistance(u) < best){
+                    best = distance + backward.getDistance(u);
+                    meeting = u;
+                }
+                if(stalled(u, distance, forward, downOffsets, downArcs, arcFrom))
+                    continue;
+                if(NavigationStats.ENABLED)
+                    forward.relaxed += upOffsets[u + 1] - upOffsets[u];
+                for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++){
+                    int a = upArcs[i];
+                    int w = arcTo[a];
+                    double candidate = distance + arcWeight[a];
+                    if(candidate < forward.getDistance(w)){
+                        if(NavigationStats.ENABLED)
+                            forward.countPush(w);
+                        forward.set(w, candidate, a);
+                        forward.queue.push(w, candidate);
+                    }
+                }
+            }
+            else{
+                int v = backward.queue.poll();
+                double distance = backward.distance[v];
+                if(NavigationStats.ENABLED)
+                    backward.settled++;
+                if(forward.getDistance(v) + distance < best){
+                    best = forward.getDistance(v) + distance;
+                    meeting = v;
+                }
+                if(stalled(v, distance, backward, upOffsets, upArcs, arcTo))
+                    continue;
+                if(NavigationStats.ENABLED)
+                    backward.relaxed += downOffsets[v + 1] - downOffsets[v];
+                for(int i = downOffsets[v]; i < downOffsets[v + 1]; i++){
+                    int a = downArcs[i];
+                    int x = arcFrom[a];
+                    double candidate = arcWeight[a] + distance;
+                    if(candidate < backward.getDistance(x)){
+                        if(NavigationStats.ENABLED)
+                            backward.countPush(x);
+                        backward.set(x, candidate, a);
+                        backward.queue.push(x, candidate);
+                    }
+                }
+            }
+        }
+        if(meeting < 0)
+            return false;
+
+        //arcs from source up to the meeting node and from there down to target
+        ArrayList<Integer> arcs = new ArrayList<>();
+        for(int v = meeting; v != source; v = arcFrom[forward.getPrevious(v)])
+            arcs.add(forward.getPrevious(v));
+        Collections.reverse(arcs);
+        for(int v = meeting; v != target; v = arcTo[backward.getPrevious(v)])
+            arcs.add(backward.getPrevious(v));
+
+        //unpack into original edges and relabel the path in driving order
+        int[] stack = new int[16];
+        for(int i = 0; i < arcs.size(); i++){
+            int size = 0;
+            stack[size++] = arcs.get(i);
+            while(size > 0){
+                int a = stack[--size];
+                if(arcEdge[a] >= 0){
+                    int e = arcEdge[a];
+                    int u = g.sources[e];
+                    forward.set(g.targets[e], forward.getDistance(u) + g.delay[u] + g.minutes[e], u);
+                }
+                else{
+                    if(size + 2 > stack.length)
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[size++] = arcSecond[a];
+                    stack[size++] = arcFirst[a];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * stall-on-demand: node does not need to be expanded if a higher node already reached by the same search
+     * gives a shorter way to it, it can not be on a shortest path going upwards then
+     * @param arcs
+     *      arcs connecting node with higher nodes against the direction of the search
+     * @param otherEnd
+     *      arcFrom for the forward search, arcTo for the backward search
+     */
+    private boolean stalled(int node, double distance, SearchContext context, int[] offsets, int[] arcs, int[] otherEnd){
+        for(int i = offsets[node]; i < offsets[node + 1]; i++){
+            int a = arcs[i];
+            if(context.getDistance(otherEnd[a]) + arcWeight[a] < distance)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * mutable graph the nodes are contracted in. A contracted node is unlinked from the arc lists of its
+     * neighbours, so the lists of the remaining nodes only hold live arcs of the remaining graph
+     */
+    private static class Builder {
+        final CompactGraph g;
+        final int n;
+        int arcCount;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        double[] weight = new double[16];
+        int[] edge = new int[16];
+        int[] first = new int[16];
+        int[] second = new int[16];
+        boolean[] dead = new boolean[16];
+        //index of every live arc in the out list of its start and in the in list of its end
+        int[] outSlot = new int[16];
+        int[] inSlot = new int[16];
+        //live arcs leaving and entering every node, the first outCount[v] and inCount[v] entries
+        final int[][] out;
+        final int[] outCount;
+        final int[][] in;
+        final int[] inCount;
+        //live arc from the node whose arcs are indexed to every other node, -1 if there is none
+        final int[] arcTowards;
+        final int[] contractedNeighbors;
+        final int[] level;
+        final int[] rank;
+        //nodes whose neighbourhood changed since their priority was computed
+        final boolean[] dirty;
+        //witness search state, target marks the nodes the search has to settle
+        final double[] witness;
+        final boolean[] target;
+        final int[] touched;
+        int touchedCount;
+        final IndexedHeapQueue witnessQueue;
+
+        Builder(CompactGraph g){
+            this.g = g;
+            this.n = g.nodeCount();
+            this.out = new int[n][];
+            this.outCount = new int[n];
+            this.in = new int[n][];
+            this.inCount = new int[n];
+            this.arcTowards = new int[n];
+            this.contractedNeighbors = new int[n];
+            this.level = new int[n];
+            this.rank = new int[n];
+            this.dirty = new boolean[n];
+            this.witness = new double[n];
+            this.target = new boolean[n];
+            this.touched = new int[n];
+            this.witnessQueue = new IndexedHeapQueue(n);
+            Arrays.fill(arcTowards, -1);
+            Arrays.fill(witness, Double.POSITIVE_INFINITY);
+            for(int v = 0; v < n; v++){
+                out[v] = new int[Math.max(2, g.offsets[v + 1] - g.offsets[v])];
+                in[v] = new int[Math.max(2, g.reverseOffsets[v + 1] - g.reverseOffsets[v])];
+            }
+        }
+
+        ContractionHierarchy build(){
+            for(int u = 0; u < n; u++){
+                indexArcs(u);
+                for(int e = g.offsets[u]; e < g.offsets[u + 1]; e++){
+                    int v = g.targets[e];
+                    if(u != v)
+                        addOrImprove(u, v, g.delay[u] + g.minutes[e], e, -1, -1);
+                }
+                clearIndex(u);
+            }
+            IndexedHeapQueue order = new IndexedHeapQueue(n);
+            for(int v = 0; v < n; v++)
+                order.push(v, priority(v));
+            int next = 0;
+            while(!order.isEmpty()){
+                int v = order.poll();
+                //only the neighbours of contracted nodes can have a new priority, it is computed when they come up
+                if(dirty[v]){
+                    dirty[v] = false;
+                    double priority = priority(v);
+                    if(!order.isEmpty() && priority > order.minKey()){
+                        order.push(v, priority);
+                        continue;
+                    }
+                }
+                shortcuts(v, true);
+                rank[v] = next++;
+                //the remaining graph no longer sees v, the final search graph is built from the arc arrays
+                for(int i = 0; i < outCount[v]; i++){
+                    int a = out[v][i];
+                    int w = to[a];
+                    contractedNeighbors[w]++;
+                    level[w] = Math.max(level[w], level[v] + 1);
+                    dirty[w] = true;
+                    removeIn(a);
+                }
+                for(int i = 0; i < inCount[v]; i++){
+                    int a = in[v][i];
+                    int u = from[a];
+                    contractedNeighbors[u]++;
+                    level[u] = Math.max(level[u], level[v] + 1);
+                    dirty[u] = true;
+                    removeOut(a);
+                }
+                outCount[v] = 0;
+                inCount[v] = 0;
+            }
+            return new ContractionHierarchy(this);
+        }
+
+        private double priority(int v){
+            int degree = outCount[v] + inCount[v];
+            return 2 * (shortcuts(v, false) - degree) + contractedNeighbors[v] + level[v];
+        }
+
+        /**
+         * finds the shortcuts contracting v needs, and adds them if apply is true
+         * @return
+         *      number of shortcuts
+         */
+        private int shortcuts(int v, boolean apply){
+            int count = 0;
+            int[] outOfV = out[v];
+            for(int i = 0; i < inCount[v]; i++){
+                int a = in[v][i];
+                int u = from[a];
+                double limit = -1;
+                int targets = 0;
+                for(int j = 0; j < outCount[v]; j++){
+                    int w = to[outOfV[j]];
+                    if(w != u){
+                        limit = Math.max(limit, weight[a] + weight[outOfV[j]]);
+                        if(!target[w]){
+                            target[w] = true;
+                            targets++;
+                        }
+                    }
+                }
+                if(limit < 0)
+                    continue;
+                witnessSearch(u, v, limit, targets, apply ? CONTRACTION_WITNESS_LIMIT : PRIORITY_WITNESS_LIMIT);
+                for(int j = 0; j < outCount[v]; j++)
+                    target[to[outOfV[j]]] = false;
+                if(apply)
+                    indexArcs(u);
+                for(int j = 0; j < outCount[v]; j++){
+                    int b = outOfV[j];
+                    int w = to[b];
+                    if(w == u)
+                        continue;
+                    double through = weight[a] + weight[b];
+                    if(witness[w] <= through)
+                        continue;
+                    count++;
+                    if(apply)
+                        addOrImprove(u, w, through, -1, a, b);
+                }
+                if(apply)
+                    clearIndex(u);
+            }
+            return count;
+        }
+
+        /**
+         * Dijkstra from u in the remaining graph without v, settles at most settleLimit nodes. It stops early
+         * once all targets are settled, their distances can not get shorter then
+         */
+        private void witnessSearch(int u, int v, double limit, int targets, int settleLimit){
+            for(int i = 0; i < touchedCount; i++)
+                witness[touched[i]] = Double.POSITIVE_INFINITY;
+            touchedCount = 0;
+            witnessQueue.clear();
+            witness[u] = 0;
+            touched[touchedCount++] = u;
+            witnessQueue.push(u, 0);
+            int settled = 0;
+            while(!witnessQueue.isEmpty() && witnessQueue.minKey() <= limit && settled++ < settleLimit){
+                int x = witnessQueue.poll();
+                if(target[x] && --targets == 0)
+                    break;
+                int[] arcs = out[x];
+                for(int i = 0; i < outCount[x]; i++){
+                    int a = arcs[i];
+                    int y = to[a];
+                    if(y == v)
+                        continue;
+                    double candidate = witness[x] + weight[a];
+                    if(candidate < witness[y]){
+                        if(witness[y] == Double.POSITIVE_INFINITY)
+                            touched[touchedCount++] = y;
+                        witness[y] = candidate;
+                        witnessQueue.push(y, candidate);
+                    }
+                }
+            }
+        }
+
+        /**
+         * fills arcTowards with the live arcs leaving u, addOrImprove needs them to find an existing arc
+         */
+        private void indexArcs(int u){
+            for(int i = 0; i < outCount[u]; i++)
+                arcTowards[to[out[u][i]]] = out[u][i];
+        }
+
+        private void clearIndex(int u){
+            for(int i = 0; i < outCount[u]; i++)
+                arcTowards[to[out[u][i]]] = -1;
+        }
+
+        /**
+         * adds an arc u -> w unless an arc at least as short exists, a longer one is replaced. The arcs of u
+         * have to be indexed, see indexArcs
+         */
+        private void addOrImprove(int u, int w, double arcWeight, int arcEdge, int arcFirst, int arcSecond){
+            int existing = arcTowards[w];
+            if(existing >= 0){
+                if(weight[existing] <= arcWeight)
+                    return;
+                dead[existing] = true;
+                removeOut(existing);
+                removeIn(existing);
+            }
+            if(arcCount == from.length){
+                int size = arcCount * 2;
+                from = Arrays.copyOf(from, size);
+                to = Arrays.copyOf(to, size);
+                weight = Arrays.copyOf(weight, size);
+                edge = Arrays.copyOf(edge, size);
+                first = Arrays.copyOf(first, size);
+                second = Arrays.copyOf(second, size);
+                dead = Arrays.copyOf(dead, size);
+                outSlot = Arrays.copyOf(outSlot, size);
+                inSlot = Arrays.copyOf(inSlot, size);
+            }
+            int a = arcCount++;
+            from[a] = u;
+            to[a] = w;
+            weight[a] = arcWeight;
+            edge[a] = arcEdge;
+            first[a] = arcFirst;
+            second[a] = arcSecond;
+            if(outCount[u] == out[u].length)
+                out[u] = Arrays.copyOf(out[u], 2 * outCount[u]);
+            outSlot[a] = outCount[u];
+            out[u][outCount[u]++] = a;
+            if(inCount[w] == in[w].length)
+                in[w] = Arrays.copyOf(in[w], 2 * inCount[w]);
+            inSlot[a] = inCount[w];
+            in[w][inCount[w]++] = a;
+            arcTowards[w] = a;
+        }
+
+        /**
+         * unlinks arc a from the out list of its start, the last arc of the list takes its place
+         */
+        private void removeOut(int a){
+            int u = from[a];
+            int last = out[u][--outCount[u]];
+            out[u][outSlot[a]] = last;
+            outSlot[last] = outSlot[a];
+        }
+
+        /**
+         * unlinks arc a from the in list of its end, the last arc of the list takes its place
+         */
+        private void removeIn(int a){
+            int w = to[a];
+            int last = in[w][--inCount[w]];
+            in[w][inSlot[a]] = last;
+            inSlot[last] = inSlot[a];
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package lab;
+
+/**
+ * The costs of one metric on one map: edge[e] for driving along edge slot e
+ * and departure[u] for leaving node u. Every search kernel reads only these
+ * two arrays, whatever the metric.
+ */
+final class CostTable {
+    final double[] edge;
+    final double[] departure;
+
+    CostTable(double[] edge, double[] departure){
+        this.edge = edge;
+        this.departure = departure;
+    }
+}
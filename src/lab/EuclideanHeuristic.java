@@ -0,0 +1,35 @@
+package lab;
+
+/**
+ * Straight-line distance to the destination, using the node coordinates of
+ * the map. It is a lower bound as long as no edge is shorter than the
+ * straight line between its endpoints. For travel time the distance is
+ * driven at the highest speed found on the map, delays are left out. Other
+ * metrics have no straight-line bound.
+ */
+class EuclideanHeuristic implements Heuristic {
+    private final double[] x;
+    private final double[] y;
+    private final double targetX;
+    private final double targetY;
+    private final double scale;
+
+    /**
+     * @param metric
+     *      Metric.DISTANCE or Metric.TIME
+     */
+    EuclideanHeuristic(CompactGraph g, int target, Metric metric){
+        this.x = g.x;
+        this.y = g.y;
+        this.targetX = g.x[target];
+        this.targetY = g.y[target];
+        this.scale = metric == Metric.TIME ? 60 / g.topSpeed : 1;
+    }
+
+    @Override
+    public double estimate(int node){
+        double dx = x[node] - targetX;
+        double dy = y[node] - targetY;
+        return Math.sqrt(dx * dx + dy * dy) * scale;
+    }
+}
@@ -0,0 +1,137 @@
+package lab;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of parsed maps, so constructing many Navigation objects
+ * for the same file parses it only once.
+ *
+ * Entries are keyed by canonical path and remember the modification time and
+ * size of the file, a changed file is parsed again. Only the compact graph
+ * is kept, the parsed nodes are dropped once it is built. It is never modified
+ * after loading, so every Navigation can share it. The least recently used maps are dropped once the estimated memory of
+ * all cached maps exceeds the capacity.
+ */
+public class GraphCache {
+    private static final GraphCache SHARED = new GraphCache(256L << 20);
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long capacityBytes;
+    private long usedBytes;
+
+    /**
+     * one parsed map
+     */
+    static class Entry {
+        final CompactGraph graph;
+        final long lastModified;
+        final long length;
+        final long bytes;
+
+        Entry(CompactGraph graph, long lastModified, long length){
+            this.graph = graph;
+            this.lastModified = lastModified;
+            this.length = length;
+            //names, name table and per node arrays, the forward and reverse edge arrays; a rough estimate is enough for eviction
+            this.bytes = 120L * graph.nodeCount() + 40L * graph.edgeCount();
+        }
+    }
+
+    /**
+     * @param capacityBytes
+     *      estimated memory the cached maps may use, 0 disables caching
+     */
+    public GraphCache(long capacityBytes){
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * @return
+     *      the cache used by the Navigation(String) constructor
+     */
+    public static GraphCache shared(){
+        return SHARED;
+    }
+
+    /**
+     * returns the parsed map of a file, parsing it if it is not cached or changed on disk
+     * @param filename
+     *      name of the file containing the map
+     */
+    Entry load(String filename) throws IOException {
+        File file = new File(filename).getCanonicalFile();
+        String key = file.getPath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized(this){
+            Entry cached = entries.get(key);
+            if(cached != null && cached.lastModified == lastModified && cached.length == length)
+                return cached;
+        }
+
+        //parse outside the lock, two threads loading the same new file at once both parse it
+        Entry parsed;
+        try(BufferedReader br = new BufferedReader(new FileReader(file))){
+            parsed = new Entry(CompactGraph.build(new ArrayList<>(MapParser.parse(br).values())), lastModified, length);
+        }
+        synchronized(this){
+            Entry old = entries.remove(key);
+            if(old != null)
+                usedBytes -= old.bytes;
+            if(parsed.bytes <= capacityBytes){
+                entries.put(key, parsed);
+                usedBytes += parsed.bytes;
+                evict();
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @param capacityBytes
+     *      estimated memory the cached maps may use, 0 disables caching
+     */
+    public synchronized void setCapacityBytes(long capacityBytes){
+        this.capacityBytes = capacityBytes;
+        evict();
+    }
+
+    public synchronized long getCapacityBytes(){
+        return capacityBytes;
+    }
+
+    /**
+     * @return
+     *      estimated memory used by the cached maps
+     */
+    public synchronized long getUsedBytes(){
+        return usedBytes;
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * drops every cached map
+     */
+    public synchronized void clear(){
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    private void evict(){
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while(usedBytes > capacityBytes && eldest.hasNext()){
+            usedBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package lab;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Binary snapshot of a CompactGraph in a memory-mapped file, so opening a map
+ * costs page faults and bulk copies instead of parsing. Names are looked up
+ * straight in the mapping, the edge arrays are copied out once and searched
+ * by SearchContext like a loaded map.
+ *
+ * Layout (big endian): magic, version, node count n, edge count m,
+ * fingerprint, size of the name blob; then name offsets int[n + 1], the UTF-8
+ * name blob, node ids sorted by name int[n], edge offsets int[n + 1], targets
+ * int[m], delay double[n], distance double[m], max speed double[m] and travel
+ * minutes double[m]. A single mapping is limited to 2 GB.
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x4e415647;
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 4 + 4 + 8 + 4;
+
+    private final int nodeCount;
+    private final long fingerprint;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer sortedIds;
+    private final int[] offsets;
+    private final int[] targets;
+    private final CostTable byDistance;
+    private final CostTable byTime;
+    private final NavigationStats stats = new NavigationStats();
+    private final ConcurrentLinkedQueue<SearchContext> contexts = new ConcurrentLinkedQueue<>();
+
+    private GraphSnapshot(MappedByteBuffer buffer) throws IOException {
+        if(buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("not a graph snapshot");
+        int n = buffer.getInt(8);
+        int m = buffer.getInt(12);
+        this.nodeCount = n;
+        this.fingerprint = buffer.getLong(16);
+        int nameBytes = buffer.getInt(24);
+        if(n < 0 || m < 0 || nameBytes < 0)
+            throw new IOException("corrupt graph snapshot");
+        long size = HEADER + 4L * (n + 1) + nameBytes + 4L * n + 4L * (n + 1) + 4L * m + 8L * n + 3 * 8L * m;
+        if(buffer.capacity() < size)
+            throw new IOException("truncated graph snapshot: " + buffer.capacity() + " of " + size + " bytes");
+
+        int position = HEADER;
+        this.nameOffsets = slice(buffer, position, 4 * (n + 1)).asIntBuffer();
+        position += 4 * (n + 1);
+        this.names = slice(buffer, position, nameBytes);
+        position += nameBytes;
+        this.sortedIds = slice(buffer, position, 4 * n).asIntBuffer();
+        position += 4 * n;
+        this.offsets = new int[n + 1];
+        slice(buffer, position, 4 * (n + 1)).asIntBuffer().get(offsets);
+        position += 4 * (n + 1);
+        this.targets = new int[m];
+        slice(buffer, position, 4 * m).asIntBuffer().get(targets);
+        position += 4 * m;
+        double[] delay = new double[n];
+        slice(buffer, position, 8 * n).asDoubleBuffer().get(delay);
+        position += 8 * n;
+        double[] distance = new double[m];
+        slice(buffer, position, 8 * m).asDoubleBuffer().get(distance);
+        position += 8 * m;
+        //max speed is stored for completeness, queries only need the precomputed minutes
+        position += 8 * m;
+        double[] minutes = new double[m];
+        slice(buffer, position, 8 * m).asDoubleBuffer().get(minutes);
+        this.byDistance = new CostTable(distance, new double[n]);
+        this.byTime = new CostTable(minutes, delay);
+        validate(nameBytes);
+    }
+
+    /**
+     * checks every index the queries follow, so a damaged file fails here instead of in a search
+     */
+    private void validate(int nameBytes) throws IOException {
+        int n = nodeCount;
+        if(nameOffsets.get(0) != 0 || nameOffsets.get(n) != nameBytes)
+            throw new IOException("corrupt graph snapshot: name table does not cover the name blob");
+        for(int v = 0; v < n; v++)
+            if(nameOffsets.get(v) > nameOffsets.get(v + 1))
+                throw new IOException("corrupt graph snapshot: name offsets of node " + v + " decrease");
+        BitSet listed = new BitSet(n);
+        for(int i = 0; i < n; i++){
+            int id = sortedIds.get(i);
+            if(id < 0 || id >= n || listed.get(id))
+                throw new IOException("corrupt graph snapshot: invalid node id " + id + " in the name index");
+            listed.set(id);
+        }
+        if(offsets[0] != 0 || offsets[n] != targets.length)
+            throw new IOException("corrupt graph snapshot: edge offsets do not cover the edges");
+        for(int v = 0; v < n; v++)
+            if(offsets[v] > offsets[v + 1])
+                throw new IOException("corrupt graph snapshot: edge offsets of node " + v + " decrease");
+        for(int e = 0; e < targets.length; e++){
+            if(targets[e] < 0 || targets[e] >= n)
+                throw new IOException("corrupt graph snapshot: invalid target " + targets[e] + " of edge " + e);
+            if(!(byDistance.edge[e] >= 0) || !(byTime.edge[e] >= 0))
+                throw new IOException("corrupt graph snapshot: invalid weight of edge " + e);
+        }
+        for(int v = 0; v < n; v++)
+            if(!(byTime.departure[v] >= 0))
+                throw new IOException("corrupt graph snapshot: invalid delay of node " + v);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length){
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice();
+    }
+
+    /**
+     * writes a snapshot of the graph
+     * @param g
+     *      the map
+     * @param filename
+     *      file to write, overwritten if it exists
+     */
+    public static void write(CompactGraph g, String filename) throws IOException {
+        int n = g.nodeCount();
+        int m = g.edgeCount();
+        byte[][] encoded = new byte[n][];
+        int nameBytes = 0;
+        for(int v = 0; v < n; v++){
+            encoded[v] = g.names[v].getBytes(StandardCharsets.UTF_8);
+            nameBytes += encoded[v].length;
+        }
+        Integer[] byName = new Integer[n];
+        for(int v = 0; v < n; v++)
+            byName[v] = v;
+        Arrays.sort(byName, (a, b) -> compare(encoded[a], encoded[b]));
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeLong(g.fingerprint());
+            out.writeInt(nameBytes);
+            int offset = 0;
+            for(int v = 0; v < n; v++){
+                out.writeInt(offset);
+                offset += encoded[v].length;
+            }
+            out.writeInt(offset);
+            for(int v = 0; v < n; v++)
+                out.write(encoded[v]);
+            for(int v = 0; v < n; v++)
+                out.writeInt(byName[v]);
+            for(int v = 0; v <= n; v++)
+                out.writeInt(g.offsets[v]);
+            for(int e = 0; e < m; e++)
+                out.writeInt(g.targets[e]);
+            for(int v = 0; v < n; v++)
+                out.writeDouble(g.delay[v]);
+            for(int e = 0; e < m; e++)
+                out.writeDouble(g.distance[e]);
+            for(int e = 0; e < m; e++)
+                out.writeDouble(g.maxSpeed[e]);
+            for(int e = 0; e < m; e++)
+                out.writeDouble(g.minutes[e]);
+        }
+    }
+
+    /**
+     * maps a snapshot written by write()
+     * @throws IOException
+     *      if the file can not be read, is not a snapshot, is shorter than its header says or refers to nodes,
+     *      edges or names that do not exist
+     */
+    public static GraphSnapshot open(String filename) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)){
+            //the mapping stays valid after the channel is closed
+            return new GraphSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return
+     *      true if the snapshot was written from this map
+     */
+    public boolean matches(CompactGraph g){
+        return fingerprint == g.fingerprint();
+    }
+
+    public int nodeCount(){
+        return nodeCount;
+    }
+
+    /**
+     * @return
+     *      work and latency counters of the queries on this snapshot, all 0 unless the JVM runs with -Dlab.stats=true
+     */
+    public NavigationStats getStats(){
+        return stats;
+    }
+
+    /**
+     * binary search over the sorted name table, comparing raw UTF-8 bytes
+     * @return
+     *      id of the node called name, -1 if it is not on the map
+     */
+    public int findNode(String name){
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            int id = sortedIds.get(middle);
+            int c = compareName(id, key);
+            if(c < 0)
+                low = middle + 1;
+            else if(c > 0)
+                high = middle - 1;
+            else
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * same contract as Navigation.findShortestDistance
+     */
+    public int findShortestDistance(String A, String B){
+        return query(A, B, false);
+    }
+
+    /**
+     * same contract as Navigation.findFastestTime
+     */
+    public int findFastestTime(String pointA, String pointB){
+        return query(pointA, pointB, true);
+    }
+
+    private int query(String A, String B, boolean byTime){
+        if(A.equals(B))
+            return 0;
+        int source = findNode(A);
+        int target = findNode(B);
+        if(source < 0 && target < 0)
+            return Navigation.SOURCE_DESTINATION_NOT_FOUND;
+        if(source < 0)
+            return Navigation.SOURCE_NOT_FOUND;
+        if(target < 0)
+            return Navigation.DESTINATION_NOT_FOUND;
+
+        SearchContext context = contexts.poll();
+        if(context == null)
+            context = new SearchContext(nodeCount, new IndexedHeapQueue(nodeCount));
+        try {
+            CostTable costs = byTime ? this.byTime : byDistance;
+            if(!search(source, target, costs, context))
+                return Navigation.NO_PATH;
+            //the answer leaves out the delay of the source
+            return (int)Math.ceil(context.getDistance(target) - costs.departure[source]);
+        } finally {
+            contexts.offer(context);
+        }
+    }
+
+    private boolean search(int source, int target, CostTable costs, SearchContext context){
+        if(!NavigationStats.ENABLED)
+            return context.dijkstra(offsets, targets, source, target, costs, true);
+        long begin = System.nanoTime();
+        context.resetCounters();
+        boolean found = context.dijkstra(offsets, targets, source, target, costs, true);
+        stats.recordQuery(context, System.nanoTime() - begin);
+        return found;
+    }
+
+    private int compareName(int id, byte[] key){
+        int begin = nameOffsets.get(id);
+        int length = nameOffsets.get(id + 1) - begin;
+        int common = Math.min(length, key.length);
+        for(int i = 0; i < common; i++){
+            int c = (names.get(begin + i) & 0xff) - (key[i] & 0xff);
+            if(c != 0)
+                return c;
+        }
+        return length - key.length;
+    }
+
+    private static int compare(byte[] a, byte[] b){
+        int common = Math.min(a.length, b.length);
+        for(int i = 0; i < common; i++){
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if(c != 0)
+                return c;
+        }
+        return a.length - b.length;
+    }
+}
@@ -0,0 +1,15 @@
+package lab;
+
+/**
+ * Lower bound on the remaining distance (or time) from a node to the
+ * destination of an A* search. Implementations have to be consistent: the
+ * estimate of u may exceed the estimate of v by at most the weight of edge u -> v.
+ */
+interface Heuristic {
+
+    /**
+     * @return
+     *      lower bound of the distance from node to the destination
+     */
+    double estimate(int node);
+}
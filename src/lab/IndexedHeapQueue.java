@@ -0,0 +1,105 @@
+package lab;
+
+/**
+ * Binary min-heap with a position index per node id, so decrease-key is a
+ * sift-up in O(log n) instead of a linear remove and reinsert.
+ */
+public class IndexedHeapQueue implements NodeQueue {
+    private final int[] heap;
+    private final int[] position;
+    private final double[] keys;
+    private int size;
+
+    /**
+     * @param capacity
+     *      number of nodes on the map, node ids have to be smaller than this
+     */
+    public IndexedHeapQueue(int capacity){
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        this.size = 0;
+        for(int i = 0; i < capacity; i++)
+            position[i] = -1;
+    }
+
+    @Override
+    public void push(int id, double key){
+        int i = position[id];
+        if(i < 0){
+            keys[id] = key;
+            heap[size] = id;
+            position[id] = size;
+            siftUp(size++);
+        }
+        else if(key < keys[id]){
+            keys[id] = key;
+            siftUp(i);
+        }
+    }
+
+    @Override
+    public int poll(){
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if(size > 0){
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    @Override
+    public double minKey(){
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public void clear(){
+        for(int i = 0; i < size; i++)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i){
+        int id = heap[i];
+        double key = keys[id];
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            int parentId = heap[parent];
+            if(keys[parentId] <= key)
+                break;
+            heap[i] = parentId;
+            position[parentId] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+
+    private void siftDown(int i){
+        int id = heap[i];
+        double key = keys[id];
+        int half = size >>> 1;
+        while(i < half){
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if(right < size && keys[heap[right]] < keys[heap[child]])
+                child = right;
+            if(key <= keys[heap[child]])
+                break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
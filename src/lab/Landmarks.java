@@ -0,0 +1,224 @@
+package lab;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Precomputed distances to and from a few landmark nodes, for the distance
+ * and the time metric. By the triangle inequality they give lower bounds for
+ * A* without needing coordinates (ALT: A*, landmarks, triangle inequality).
+ *
+ * Landmarks are picked one after another, each one as far as possible from
+ * the landmarks picked so far, so they end up at the borders of the map.
+ */
+public class Landmarks {
+    private static final int MAGIC = 0x414c5431;
+
+    private final long fingerprint;
+    private final int[] landmarks;
+    //[landmark][node], distance and time from the landmark to the node and from the node to the landmark
+    private final double[][] distanceFrom;
+    private final double[][] distanceTo;
+    private final double[][] timeFrom;
+    private final double[][] timeTo;
+
+    private Landmarks(long fingerprint, int[] landmarks, double[][] distanceFrom, double[][] distanceTo,
+                      double[][] timeFrom, double[][] timeTo){
+        this.fingerprint = fingerprint;
+        this.landmarks = landmarks;
+        this.distanceFrom = distanceFrom;
+        this.distanceTo = distanceTo;
+        this.timeFrom = timeFrom;
+        this.timeTo = timeTo;
+    }
+
+    /**
+     * picks count landmarks and runs forward and backward searches from each of them for both metrics
+     * @param g
+     *      the map
+     * @param count
+     *      number of landmarks, at most the number of nodes is used
+     * @return
+     *      the landmark tables
+     */
+    public static Landmarks compute(CompactGraph g, int count){
+        int n = g.nodeCount();
+        count = Math.min(count, n);
+        int[] landmarks = new int[count];
+        double[][] distanceFrom = new double[count][];
+        double[][] distanceTo = new double[count][];
+        double[][] timeFrom = new double[count][];
+        double[][] timeTo = new double[count][];
+
+        //closeness[v]: smallest round trip distance between v and the landmarks picked so far
+        double[] closeness = new double[n];
+        Arrays.fill(closeness, Double.MAX_VALUE);
+        IndexedHeapQueue queue = new IndexedHeapQueue(n);
+        for(int i = 0; i < count; i++){
+            int next = 0;
+            if(i == 0){
+                //start at the node farthest away from node 0
+                double[] fromZero = shortestPaths(g, 0, g.costs(Metric.DISTANCE), false, queue);
+                for(int v = 0; v < n; v++)
+                    if(fromZero[v] != Double.POSITIVE_INFINITY && fromZero[v] > fromZero[next])
+                        next = v;
+            }
+            else{
+                for(int v = 0; v < n; v++)
+                    if(closeness[v] > closeness[next])
+                        next = v;
+            }
+            landmarks[i] = next;
+            distanceFrom[i] = shortestPaths(g, next, g.costs(Metric.DISTANCE), false, queue);
+            distanceTo[i] = shortestPaths(g, next, g.costs(Metric.DISTANCE), true, queue);
+            timeFrom[i] = shortestPaths(g, next, g.costs(Metric.TIME), false, queue);
+            timeTo[i] = shortestPaths(g, next, g.costs(Metric.TIME), true, queue);
+            for(int v = 0; v < n; v++){
+                double roundTrip = distanceFrom[i][v] + distanceTo[i][v];
+                closeness[v] = Math.min(closeness[v], roundTrip == Double.POSITIVE_INFINITY ? Double.MAX_VALUE / 2 : roundTrip);
+            }
+            closeness[next] = -1;
+        }
+        return new Landmarks(g.fingerprint(), landmarks, distanceFrom, distanceTo, timeFrom, timeTo);
+    }
+
+    /**
+     * full Dijkstra from source, over the reversed edges if reverse is true
+     * @return
+     *      distance of every node, infinity for nodes that are not connected
+     */
+    private static double[] shortestPaths(CompactGraph g, int source, CostTable costs, boolean reverse, NodeQueue queue){
+        double[] dist = new double[g.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        queue.clear();
+        dist[source] = 0;
+        queue.push(source, 0);
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            if(!reverse){
+                double departure = dist[u] + costs.departure[u];
+                for(int e = g.offsets[u]; e < g.offsets[u + 1]; e++){
+                    int v = g.targets[e];
+                    double candidate = departure + costs.edge[e];
+                    if(candidate < dist[v]){
+                        dist[v] = candidate;
+                        queue.push(v, candidate);
+                    }
+                }
+            }
+            else{
+                for(int r = g.reverseOffsets[u]; r < g.reverseOffsets[u + 1]; r++){
+                    int e = g.reverseEdges[r];
+                    int v = g.sources[e];
+                    double candidate = (costs.departure[v] + costs.edge[e]) + dist[u];
+                    if(candidate < dist[v]){
+                        dist[v] = candidate;
+                        queue.push(v, candidate);
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * @return
+     *      true if the tables were computed for this map
+     */
+    public boolean matches(CompactGraph g){
+        return fingerprint == g.fingerprint() && (landmarks.length == 0 || distanceFrom[0].length == g.nodeCount());
+    }
+
+    public int[] getLandmarks(){
+        return landmarks.clone();
+    }
+
+    /**
+     * @param target
+     *      destination of the search
+     * @param metric
+     *      metric of the search
+     * @return
+     *      lower bound on the distance from any node to target, null if there are no tables for metric
+     */
+    Heuristic towards(int target, Metric metric){
+        if(metric != Metric.DISTANCE && metric != Metric.TIME)
+            return null;
+        double[][] from = metric == Metric.TIME ? timeFrom : distanceFrom;
+        double[][] to = metric == Metric.TIME ? timeTo : distanceTo;
+        return node -> {
+            double bound = 0;
+            for(int i = 0; i < landmarks.length; i++){
+                double[] fromLandmark = from[i];
+                double[] toLandmark = to[i];
+                //d(L,t) <= d(L,v) + d(v,t)
+                if(fromLandmark[target] != Double.POSITIVE_INFINITY){
+                    if(fromLandmark[node] == Double.POSITIVE_INFINITY)
+                        continue;
+                    bound = Math.max(bound, fromLandmark[target] - fromLandmark[node]);
+                }
+                else if(fromLandmark[node] != Double.POSITIVE_INFINITY)
+                    //L reaches v but not t, so v cannot reach t either
+                    return Double.POSITIVE_INFINITY;
+                //d(v,L) <= d(v,t) + d(t,L)
+                if(toLandmark[node] != Double.POSITIVE_INFINITY){
+                    if(toLandmark[target] != Double.POSITIVE_INFINITY)
+                        bound = Math.max(bound, toLandmark[node] - toLandmark[target]);
+                }
+                else if(toLandmark[target] != Double.POSITIVE_INFINITY)
+                    //t reaches L but v does not, so v cannot reach t
+                    return Double.POSITIVE_INFINITY;
+            }
+            return bound;
+        };
+    }
+
+    /**
+     * writes the tables to a file, usually next to the map as [map].landmarks
+     */
+    public void save(String filename) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))){
+            out.writeInt(MAGIC);
+            out.writeLong(fingerprint);
+            out.writeInt(landmarks.length);
+            int n = landmarks.length == 0 ? 0 : distanceFrom[0].length;
+            out.writeInt(n);
+            for(int i = 0; i < landmarks.length; i++){
+                out.writeInt(landmarks[i]);
+                for(double[] table : new double[][]{distanceFrom[i], distanceTo[i], timeFrom[i], timeTo[i]})
+                    for(int v = 0; v < n; v++)
+                        out.writeDouble(table[v]);
+            }
+        }
+    }
+
+    /**
+     * reads tables written by save()
+     * @throws IOException
+     *      if the file can not be read or is not a landmark file
+     */
+    public static Landmarks load(String filename) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))){
+            if(in.readInt() != MAGIC)
+                throw new IOException("not a landmark file: " + filename);
+            long fingerprint = in.readLong();
+            int count = in.readInt();
+            int n = in.readInt();
+            int[] landmarks = new int[count];
+            double[][][] tables = new double[4][count][n];
+            for(int i = 0; i < count; i++){
+                landmarks[i] = in.readInt();
+                for(int t = 0; t < 4; t++)
+                    for(int v = 0; v < n; v++)
+                        tables[t][i][v] = in.readDouble();
+            }
+            return new Landmarks(fingerprint, landmarks, tables[0], tables[1], tables[2], tables[3]);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package lab;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds with log-linear buckets,
+ * like an HDR histogram: every power of two is split into 32 buckets, so a
+ * percentile is off by at most about 3%, from one nanosecond up to
+ * Long.MAX_VALUE.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS)
+            return (int) Math.max(0, value);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) | (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return
+     *      largest value that falls into bucket
+     */
+    private static long highestOf(int bucket){
+        int shift = (bucket >>> SUB_BITS) - 1;
+        if(shift < 0)
+            return bucket;
+        long lowest = ((long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1)))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public void record(long nanos){
+        counts.incrementAndGet(bucketOf(nanos));
+        total.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount(){
+        return total.sum();
+    }
+
+    /**
+     * @return
+     *      sum of all recorded values
+     */
+    public long getSum(){
+        return sum.sum();
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * @return
+     *      average of all recorded values, 0 if there are none
+     */
+    public double getMean(){
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @param percentile
+     *      between 0 and 100
+     * @return
+     *      a value at least as large as the given percentage of the recorded values, 0 if there are none
+     */
+    public long getPercentile(double percentile){
+        long count = 0;
+        for(int b = 0; b < BUCKETS; b++)
+            count += counts.get(b);
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for(int b = 0; b < BUCKETS; b++){
+            seen += counts.get(b);
+            if(seen >= rank && seen > 0)
+                return Math.min(highestOf(b), getMax());
+        }
+        return 0;
+    }
+
+    public void reset(){
+        for(int b = 0; b < BUCKETS; b++)
+            counts.set(b, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,114 @@
+package lab;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap without decrease-key. Every push adds a new entry, entries
+ * that were superseded by a smaller key or belong to an already polled node
+ * are skipped when they reach the top.
+ */
+public class LazyHeapQueue implements NodeQueue {
+    private int[] ids;
+    private double[] keys;
+    private int size;
+    private final double[] best;
+    private final boolean[] polled;
+    private final int[] touched;
+    private int touchedCount;
+
+    /**
+     * @param capacity
+     *      number of nodes on the map, node ids have to be smaller than this
+     */
+    public LazyHeapQueue(int capacity){
+        this.ids = new int[Math.max(capacity, 4)];
+        this.keys = new double[Math.max(capacity, 4)];
+        this.best = new double[capacity];
+        this.polled = new boolean[capacity];
+        this.touched = new int[capacity];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public void push(int id, double key){
+        if(polled[id] || key >= best[id])
+            return;
+        if(best[id] == Double.POSITIVE_INFINITY)
+            touched[touchedCount++] = id;
+        best[id] = key;
+        if(size == ids.length){
+            ids = Arrays.copyOf(ids, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size++;
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            if(keys[parent] <= key)
+                break;
+            ids[i] = ids[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        keys[i] = key;
+    }
+
+    @Override
+    public int poll(){
+        skipStale();
+        int top = ids[0];
+        removeTop();
+        polled[top] = true;
+        return top;
+    }
+
+    @Override
+    public double minKey(){
+        skipStale();
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[0];
+    }
+
+    @Override
+    public boolean isEmpty(){
+        skipStale();
+        return size == 0;
+    }
+
+    @Override
+    public void clear(){
+        for(int i = 0; i < touchedCount; i++){
+            best[touched[i]] = Double.POSITIVE_INFINITY;
+            polled[touched[i]] = false;
+        }
+        touchedCount = 0;
+        size = 0;
+    }
+
+    private void skipStale(){
+        while(size > 0 && (polled[ids[0]] || keys[0] > best[ids[0]]))
+            removeTop();
+    }
+
+    private void removeTop(){
+        size--;
+        if(size == 0)
+            return;
+        int id = ids[size];
+        double key = keys[size];
+        int i = 0;
+        int half = size >>> 1;
+        while(i < half){
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if(right < size && keys[right] < keys[child])
+                child = right;
+            if(key <= keys[child])
+                break;
+            ids[i] = ids[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        ids[i] = id;
+        keys[i] = key;
+    }
+}
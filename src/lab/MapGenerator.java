@@ -0,0 +1,275 @@
+package lab;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates large synthetic maps in the format the Navigation constructor
+ * parses, for scale and regression tests. The same shape, size and seed
+ * always give the same map.
+ *
+ * Every road is two edges, one per direction, with the same distance and
+ * speed limit. Grid and random geometric maps have node coordinates and no
+ * road is shorter than the straight line between its ends, so A* can be used
+ * on them. Node lines are written before the edge lines, so the parser never
+ * has to hold edges back.
+ *
+ * Usage: java lab.MapGenerator grid|geometric|scalefree edges seed file [sources]
+ * writes the map to file and expected answers for sources random start
+ * points (default 10) to file.expected, see writeExpected.
+ */
+public class MapGenerator {
+
+    public enum Shape {
+        /** square grid, roads between horizontal and vertical neighbours */
+        GRID,
+        /** random points in a square, roads between points closer than a fixed radius */
+        GEOMETRIC,
+        /** preferential attachment: new nodes connect to nodes that already have many roads */
+        SCALE_FREE
+    }
+
+    private static final int[] SPEEDS = { 30, 50, 70, 100, 130 };
+    private static final int MAX_DELAY = 5;
+    //grid spacing and point density of geometric maps: one node per SPACING * SPACING
+    private static final double SPACING = 10;
+    //average number of roads per node on geometric and scale-free maps
+    private static final int DEGREE = 3;
+    private static final int TARGETS_PER_SOURCE = 5;
+
+    private final Random random;
+    private final int nodeCount;
+    private final int[] delay;
+    private final double[] x;
+    private final double[] y;
+    private int edgeCount;
+    private int[] from = new int[16];
+    private int[] to = new int[16];
+    private int[] distance = new int[16];
+    private int[] speed = new int[16];
+
+    private MapGenerator(int nodeCount, boolean positions, long seed){
+        this.random = new Random(seed);
+        this.nodeCount = nodeCount;
+        this.delay = new int[nodeCount];
+        for(int u = 0; u < nodeCount; u++)
+            delay[u] = random.nextInt(MAX_DELAY);
+        this.x = positions ? new double[nodeCount] : null;
+        this.y = positions ? new double[nodeCount] : null;
+    }
+
+    /**
+     * @param shape
+     *      kind of map
+     * @param edges
+     *      approximate number of edges (two per road)
+     * @param seed
+     *      seed of the random choices
+     * @return
+     *      the generated map, ready to be written
+     */
+    public static MapGenerator generate(Shape shape, int edges, long seed){
+        switch(shape){
+            case GRID:
+                return grid(Math.max(2, (int) Math.round(Math.sqrt(edges / 4.0))), seed);
+            case GEOMETRIC:
+                return geometric(Math.max(2, edges / (2 * DEGREE)), seed);
+            default:
+                return scaleFree(Math.max(DEGREE + 1, edges / (2 * DEGREE)), seed);
+        }
+    }
+
+    private static MapGenerator grid(int side, long seed){
+        MapGenerator map = new MapGenerator(side * side, true, seed);
+        for(int r = 0; r < side; r++){
+            for(int c = 0; c < side; c++){
+                int u = r * side + c;
+                map.x[u] = c * SPACING;
+                map.y[u] = r * SPACING;
+                //detours make roads up to half longer than the spacing
+                if(c + 1 < side)
+                    map.addRoad(u, u + 1, (int) SPACING + map.random.nextInt((int) SPACING / 2 + 1));
+                if(r + 1 < side)
+                    map.addRoad(u, u + side, (int) SPACING + map.random.nextInt((int) SPACING / 2 + 1));
+            }
+        }
+        return map;
+    }
+
+    private static MapGenerator geometric(int n, long seed){
+        MapGenerator map = new MapGenerator(n, true, seed);
+        double size = Math.sqrt(n) * SPACING;
+        //n * pi * radius^2 / size^2 = 2 * DEGREE neighbours on average
+        double radius = SPACING * Math.sqrt(2 * DEGREE / Math.PI);
+        int cells = Math.max(1, (int) (size / radius));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for(int u = 0; u < n; u++){
+            map.x[u] = map.random.nextDouble() * size;
+            map.y[u] = map.random.nextDouble() * size;
+            cellOf[u] = cell(map.x[u], size, cells) * cells + cell(map.y[u], size, cells);
+            cellStart[cellOf[u] + 1]++;
+        }
+        for(int c = 0; c < cells * cells; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] members = new int[n];
+        int[] fill = cellStart.clone();
+        for(int u = 0; u < n; u++)
+            members[fill[cellOf[u]]++] = u;
+
+        for(int u = 0; u < n; u++){
+            int cx = cellOf[u] / cells;
+            int cy = cellOf[u] % cells;
+            for(int i = Math.max(0, cx - 1); i <= Math.min(cells - 1, cx + 1); i++){
+                for(int j = Math.max(0, cy - 1); j <= Math.min(cells - 1, cy + 1); j++){
+                    int c = i * cells + j;
+                    for(int k = cellStart[c]; k < cellStart[c + 1]; k++){
+                        int v = members[k];
+                        double length = Math.hypot(map.x[u] - map.x[v], map.y[u] - map.y[v]);
+                        if(u < v && length <= radius)
+                            map.addRoad(u, v, Math.max(1, (int) Math.ceil(length)));
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    private static int cell(double coordinate, double size, int cells){
+        return Math.min(cells - 1, (int) (coordinate / size * cells));
+    }
+
+    private static MapGenerator scaleFree(int n, long seed){
+        MapGenerator map = new MapGenerator(n, false, seed);
+        //every road end is listed once, so a uniform pick chooses nodes proportionally to their degree
+        int[] ends = new int[2 * DEGREE * n + DEGREE * DEGREE];
+        int endCount = 0;
+        for(int u = 0; u <= DEGREE; u++){
+            for(int v = 0; v < u; v++){
+                map.addRoad(u, v, 1 + map.random.nextInt(50));
+                ends[endCount++] = u;
+                ends[endCount++] = v;
+            }
+        }
+        int[] chosen = new int[DEGREE];
+        for(int u = DEGREE + 1; u < n; u++){
+            for(int k = 0; k < DEGREE; k++){
+                int v;
+                do
+                    v = ends[map.random.nextInt(endCount)];
+                while(contains(chosen, k, v));
+                chosen[k] = v;
+            }
+            for(int k = 0; k < DEGREE; k++){
+                map.addRoad(u, chosen[k], 1 + map.random.nextInt(50));
+                ends[endCount++] = u;
+                ends[endCount++] = chosen[k];
+            }
+        }
+        return map;
+    }
+
+    private static boolean contains(int[] values, int count, int value){
+        for(int i = 0; i < count; i++)
+            if(values[i] == value)
+                return true;
+        return false;
+    }
+
+    private void addRoad(int u, int v, int length){
+        int limit = SPEEDS[random.nextInt(SPEEDS.length)];
+        addEdge(u, v, length, limit);
+        addEdge(v, u, length, limit);
+    }
+
+    private void addEdge(int u, int v, int length, int limit){
+        if(edgeCount == from.length){
+            from = Arrays.copyOf(from, 2 * edgeCount);
+            to = Arrays.copyOf(to, 2 * edgeCount);
+            distance = Arrays.copyOf(distance, 2 * edgeCount);
+            speed = Arrays.copyOf(speed, 2 * edgeCount);
+        }
+        from[edgeCount] = u;
+        to[edgeCount] = v;
+        distance[edgeCount] = length;
+        speed[edgeCount] = limit;
+        edgeCount++;
+    }
+
+    public int getNodeCount(){
+        return nodeCount;
+    }
+
+    public int getEdgeCount(){
+        return edgeCount;
+    }
+
+    /**
+     * @return
+     *      name of node u on the written map
+     */
+    public static String name(int u){
+        return "N" + u;
+    }
+
+    /**
+     * writes the map in the format of the test files
+     */
+    public void write(String filename) throws IOException {
+        try(BufferedWriter out = new BufferedWriter(new FileWriter(filename), 1 << 16)){
+            out.write("Digraph {\n");
+            for(int u = 0; u < nodeCount; u++){
+                out.write(name(u) + " [label=\"" + name(u) + "," + delay[u] + "\"");
+                if(x != null)
+                    out.write(", pos=\"" + x[u] + "," + y[u] + "\"");
+                out.write("];\n");
+            }
+            for(int e = 0; e < edgeCount; e++)
+                out.write(name(from[e]) + " -> " + name(to[e]) + " [label=\"" + distance[e] + "," + speed[e] + "\"];\n");
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Writes expected answers computed by ReferenceSolver, one query per line:
+     * "source destination distance time", where distance and time are what
+     * findShortestDistance and findFastestTime have to return (NO_PATH if
+     * there is none). For every source TARGETS_PER_SOURCE random destinations
+     * are listed.
+     * @param sources
+     *      number of random start points
+     * @param seed
+     *      seed for picking the queries
+     */
+    public void writeExpected(String filename, int sources, long seed) throws IOException {
+        ReferenceSolver solver = new ReferenceSolver(nodeCount, from, to, distance, speed, delay, edgeCount);
+        Random picks = new Random(seed);
+        try(BufferedWriter out = new BufferedWriter(new FileWriter(filename))){
+            for(int i = 0; i < sources; i++){
+                int s = picks.nextInt(nodeCount);
+                int[] byDistance = solver.answers(s, false);
+                int[] byTime = solver.answers(s, true);
+                for(int k = 0; k < TARGETS_PER_SOURCE; k++){
+                    int t = picks.nextInt(nodeCount);
+                    out.write(name(s) + " " + name(t) + " " + byDistance[t] + " " + byTime[t] + "\n");
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 4){
+            System.err.println("usage: java lab.MapGenerator grid|geometric|scalefree edges seed file [sources]");
+            System.exit(1);
+        }
+        Shape shape = args[0].equals("grid") ? Shape.GRID : args[0].equals("geometric") ? Shape.GEOMETRIC : Shape.SCALE_FREE;
+        long seed = Long.parseLong(args[2]);
+        MapGenerator map = generate(shape, Integer.parseInt(args[1]), seed);
+        map.write(args[3]);
+        map.writeExpected(args[3] + ".expected", args.length > 4 ? Integer.parseInt(args[4]) : 10, seed);
+        System.out.println(args[3] + ": " + map.getNodeCount() + " nodes, " + map.getEdgeCount() + " edges");
+    }
+}
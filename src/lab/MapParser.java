@@ -0,0 +1,141 @@
+package lab;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads a map in the DOT-like input format in a single forward pass.
+ *
+ * Node lines look like {@code A [label="A,5"];} and edge lines like
+ * {@code A -> B [label="10,90"];}. Node lines may carry coordinates in km
+ * as an extra attribute, {@code A [label="A,5", pos="12.5,40"];}. Lines are tokenized by hand, nodes are
+ * indexed by name as soon as they are read, and edges whose endpoints have
+ * not been read yet are kept aside until the end of the file. If a name is
+ * declared twice the first node counts, incomplete lines are skipped.
+ */
+public class MapParser {
+    private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>();
+    private final ArrayList<String[]> pendingEdgeNames = new ArrayList<>();
+    private final ArrayList<int[]> pendingEdgeLabels = new ArrayList<>();
+
+    /**
+     * reads every line of the map and links all edges
+     * @param br
+     *      reader positioned at the start of the map
+     * @return
+     *      all nodes of the map indexed by name, in the order they appear in the file
+     */
+    public static LinkedHashMap<String, Node> parse(BufferedReader br) throws IOException {
+        MapParser parser = new MapParser();
+        String line;
+        while((line = br.readLine()) != null)
+            parser.parseLine(line);
+        parser.linkPendingEdges();
+        return parser.nodes;
+    }
+
+    private void parseLine(String line){
+        int space = line.indexOf(' ');
+        if(space <= 0 || space + 1 >= line.length())
+            return;
+        char next = line.charAt(space + 1);
+        //if vertex
+        if(next == '[')
+            parseNode(line);
+        //if edge
+        else if(next == '-' && line.startsWith("->", space + 1))
+            parseEdge(line, line.substring(0, space), space + 4);
+    }
+
+    private void parseNode(String line){
+        int label = labelStart(line, 0);
+        int comma = label < 0 ? -1 : line.indexOf(',', label);
+        int close = comma < 0 ? -1 : line.indexOf('"', comma);
+        //malformed or truncated lines are skipped
+        if(close < 0)
+            return;
+        String name = line.substring(label, comma);
+        int delay = parseInt(line, comma + 1, close);
+        if(nodes.containsKey(name))
+            return;
+        Node node = new Node(name, delay, nodes.size());
+        int pos = line.indexOf("pos=\"", close);
+        if(pos >= 0){
+            int posComma = line.indexOf(',', pos);
+            int posClose = posComma < 0 ? -1 : line.indexOf('"', posComma);
+            if(posClose >= 0)
+                node.setPosition(Double.parseDouble(line.substring(pos + 5, posComma).trim()),
+                        Double.parseDouble(line.substring(posComma + 1, posClose).trim()));
+        }
+        nodes.put(name, node);
+    }
+
+    private void parseEdge(String line, String start, int endStart){
+        int endEnd = line.indexOf(' ', endStart);
+        int label = endEnd < 0 ? -1 : labelStart(line, endEnd);
+        int comma = label < 0 ? -1 : line.indexOf(',', label);
+        int close = comma < 0 ? -1 : line.indexOf('"', comma);
+        //malformed or truncated lines are skipped
+        if(close < 0)
+            return;
+        String end = line.substring(endStart, endEnd);
+        int distance = parseInt(line, label, comma);
+        int maxSpeed = parseInt(line, comma + 1, close);
+
+        Node startNode = nodes.get(start);
+        Node endNode = nodes.get(end);
+        if(startNode != null && endNode != null)
+            startNode.addEdge(new Edge(startNode, endNode, distance, maxSpeed));
+        else {
+            //an endpoint appears later in the file
+            pendingEdgeNames.add(new String[]{start, end});
+            pendingEdgeLabels.add(new int[]{distance, maxSpeed});
+        }
+    }
+
+    private void linkPendingEdges(){
+        for(int i = 0; i < pendingEdgeNames.size(); i++){
+            Node startNode = nodes.get(pendingEdgeNames.get(i)[0]);
+            Node endNode = nodes.get(pendingEdgeNames.get(i)[1]);
+            //edges pointing to nodes that are not on the map are dropped
+            if(startNode != null && endNode != null)
+                startNode.addEdge(new Edge(startNode, endNode, pendingEdgeLabels.get(i)[0], pendingEdgeLabels.get(i)[1]));
+        }
+        pendingEdgeNames.clear();
+        pendingEdgeLabels.clear();
+    }
+
+    /**
+     * @return
+     *      index of the first character inside label="..." at or after from, -1 if there is no label
+     */
+    private static int labelStart(String line, int from){
+        int label = line.indexOf("label=\"", from);
+        return label < 0 ? -1 : label + 7;
+    }
+
+    /**
+     * parses a decimal integer between begin and end, ignoring surrounding blanks
+     */
+    private static int parseInt(String line, int begin, int end){
+        while(begin < end && line.charAt(begin) == ' ')
+            begin++;
+        while(end > begin && line.charAt(end - 1) == ' ')
+            end--;
+        boolean negative = begin < end && line.charAt(begin) == '-';
+        if(negative)
+            begin++;
+        if(begin == end)
+            throw new NumberFormatException("empty number in: " + line);
+        int value = 0;
+        for(int i = begin; i < end; i++){
+            char c = line.charAt(i);
+            if(c < '0' || c > '9')
+                throw new NumberFormatException("invalid number in: " + line);
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,102 @@
+package lab;
+
+/**
+ * What a path search minimises. Driving along edge e from node u costs
+ * departureCost(u) + edgeCost(e); the answer for a route leaves out the
+ * departure cost of its source.
+ *
+ * The costs are evaluated once per map and kept in primitive arrays (see
+ * CostTable), the searches never call back into a metric. Own metrics, for
+ * example tolls or fuel, extend this class; costs must not be negative.
+ * Tables are kept per metric instance, so a metric should be created once
+ * and reused.
+ */
+public abstract class Metric {
+
+    /**
+     * length of the route in km
+     */
+    public static final Metric DISTANCE = new Metric("Distance") {
+        @Override
+        public double edgeCost(CompactGraph g, int edge){
+            return g.getDistance(edge);
+        }
+
+        @Override
+        CostTable createTable(CompactGraph g){
+            return new CostTable(g.distance, new double[g.nodeCount()]);
+        }
+    };
+
+    /**
+     * minutes of driving at the maximum speed of every edge plus the delay of every node passed
+     */
+    public static final Metric TIME = new Metric("Time") {
+        @Override
+        public double edgeCost(CompactGraph g, int edge){
+            return g.getMinutes(edge);
+        }
+
+        @Override
+        public double departureCost(CompactGraph g, int node){
+            return g.getDelay(node);
+        }
+
+        @Override
+        CostTable createTable(CompactGraph g){
+            return new CostTable(g.minutes, g.delay);
+        }
+    };
+
+    private final String name;
+
+    protected Metric(String name){
+        this.name = name;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * @param edge
+     *      edge slot of g
+     * @return
+     *      cost of driving along edge
+     */
+    public abstract double edgeCost(CompactGraph g, int edge);
+
+    /**
+     * @return
+     *      cost of leaving node, 0 unless overridden
+     */
+    public double departureCost(CompactGraph g, int node){
+        return 0;
+    }
+
+    /**
+     * evaluates the metric for every edge and node of g
+     * @throws IllegalArgumentException
+     *      if a cost is negative or not a number
+     */
+    CostTable createTable(CompactGraph g){
+        double[] edge = new double[g.edgeCount()];
+        double[] departure = new double[g.nodeCount()];
+        for(int e = 0; e < edge.length; e++)
+            edge[e] = checked(edgeCost(g, e), "edge", e);
+        for(int u = 0; u < departure.length; u++)
+            departure[u] = checked(departureCost(g, u), "node", u);
+        return new CostTable(edge, departure);
+    }
+
+    private double checked(double cost, String what, int index){
+        if(!(cost >= 0))
+            throw new IllegalArgumentException(name + ": invalid cost " + cost + " for " + what + " " + index);
+        return cost;
+    }
+
+    @Override
+    public String toString(){
+        return name;
+    }
+}
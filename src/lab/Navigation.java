@@ -1,10 +1,27 @@
 package lab;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * The class Navigation finds the shortest (and/or) path between points on a map
@@ -22,73 +39,59 @@ public class Navigation {
 	public static final int SOURCE_DESTINATION_NOT_FOUND = -3;
 	public static final int NO_PATH = -4;
 
+	private static final int NOT_ON_PATH = -2;
+	private static final int WRITE_BUFFER = 8192;
+
 
-	private ArrayList<Node> cities;
+	private volatile MapState state;
+	private final Object updateLock = new Object();
+	private final ConcurrentLinkedQueue<SearchContext> contexts = new ConcurrentLinkedQueue<>();
+	private volatile IntFunction<NodeQueue> queueFactory = IndexedHeapQueue::new;
+	private volatile boolean fullExpansion = false;
+	private volatile SearchMode searchMode = SearchMode.DIJKSTRA;
+	private volatile TreeCache treeCache;
+	private final NavigationStats stats = new NavigationStats();
+	private final String filename;
 
 
 	/**
-	 * The constructor takes a filename as input, it reads that file and fill
-	 * the nodes and edges Lists with corresponding node and edge objects
+	 * The constructor takes a filename as input, it reads that file and
+	 * builds the compact graph of its nodes and edges. If the file was read
+	 * before and has not changed, the graph is taken from GraphCache.shared()
+	 * instead.
 	 * 
 	 * @param filename
 	 *            name of the file containing the input map
 	 */
 	public Navigation(String filename) {
-		this.cities = new ArrayList<>();
-
+		this.filename = filename;
+		GraphCache.Entry map = null;
+		long begin = System.nanoTime();
 		try{
-            FileReader fr = new FileReader(filename);
-            BufferedReader br = new BufferedReader(fr);
-            ArrayList<String> lines = new ArrayList<>();
-
-
-
-            String currentLine;
-            boolean finished = false;
-            //create cities and edges
-
-            while(!finished) {
-                currentLine = br.readLine();
-                if(currentLine != null) {
-                    lines.add(currentLine);
-                }
-                else
-                    finished = true;
-            }
-
-            for (int k = 0; k < lines.size(); k++) {
-                currentLine = lines.get(lines.size() -1 - k);
-                //if vertex
-                if (currentLine.matches("[a-z|A-Z]* \\[.*")) {
-                    String name = currentLine.substring(currentLine.indexOf("\"") + 1, currentLine.indexOf(","));
-                    int delay = Integer.parseInt(currentLine.substring(currentLine.indexOf(",") + 1, currentLine.lastIndexOf("\"")));
-                    Node newNode = new Node(name, delay);
-                    cities.add(newNode);
-                }
-                //if edge
-                else if (currentLine.matches("[a-z|A-Z]* ->.*")) {
-                    String start = "" + currentLine.substring(0, currentLine.indexOf("-") - 1);
-                    String end = "" + currentLine.substring(currentLine.indexOf(">") + 2, currentLine.indexOf("[") - 1);
-                    int distance = Integer.parseInt(currentLine.substring(currentLine.indexOf("\"") + 1, currentLine.lastIndexOf(",")));
-                    int maxSpeed = Integer.parseInt(currentLine.substring(currentLine.indexOf(",") + 1, currentLine.lastIndexOf("\"")));
-
-                    Node startNode = null;
-                    Node endNode = null;
-                    for (int i = 0; i < cities.size(); i++) {
-                        if (cities.get(i).getName().equals(start)) {
-                            startNode = cities.get(i);
-                        } else if (cities.get(i).getName().equals(end)) {
-                            endNode = cities.get(i);
-                        }
-                    }
-                    if (startNode != null && endNode != null) {
-                        Edge connection = new Edge(startNode, endNode, distance, maxSpeed);
-                        startNode.addEdge(connection);
-                    }
-                }
-            }
-
+            //maps are parsed once per file and shared by every Navigation reading that file
+            map = GraphCache.shared().load(filename);
         } catch (IOException e){e.printStackTrace();}
+		stats.recordLoad(System.nanoTime() - begin);
+		if(map != null)
+			this.state = new MapState(map.graph, null, null);
+		else
+			this.state = new MapState(CompactGraph.build(new ArrayList<>()), null, null);
+	}
+
+	/**
+	 * one version of the map together with the preprocessing done for it. It is replaced as a whole, so a
+	 * query reads it once and never mixes weights of different versions
+	 */
+	private static final class MapState {
+		final CompactGraph graph;
+		final Landmarks landmarks;
+		final ContractionHierarchy hierarchy;
+
+		MapState(CompactGraph graph, Landmarks landmarks, ContractionHierarchy hierarchy){
+			this.graph = graph;
+			this.landmarks = landmarks;
+			this.hierarchy = hierarchy;
+		}
 	}
 
 	/**
@@ -113,12 +116,61 @@ public class Navigation {
 	 *         returned.
 	 */
 	public ArrayList<String> findShortestRoute(String A, String B) {
-		if (!A.equals(B)) {
-			Node result = findPath(A, B, "Route, Distance");
-			if (!result.getName().equals("null") && !result.getName().equals("ToD"))
-				return makeMap(result);
-		}
-		return makeMap(null);
+		MapState current = state;
+		return makeMap(current.graph, routeIds(current, A, B, Metric.DISTANCE));
+	}
+
+    /**
+     * streams the map of findShortestRoute(A, B) to out, one line per node and edge, without building the list
+     * @param out
+     *      receives the lines separated by '\n', it is flushed but not closed
+     */
+	public void writeShortestRoute(String A, String B, Writer out) throws IOException {
+		MapState current = state;
+		writeMap(current.graph, routeIds(current, A, B, Metric.DISTANCE), out);
+	}
+
+    /**
+     * streams the map of findShortestRoute(A, B) UTF-8 encoded to out, which is flushed but not closed
+     */
+	public void writeShortestRoute(String A, String B, OutputStream out) throws IOException {
+		writeShortestRoute(A, B, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER));
+	}
+
+    /**
+     * streams the map of findShortestRoute(A, B) UTF-8 encoded to out, which is not closed
+     */
+	public void writeShortestRoute(String A, String B, WritableByteChannel out) throws IOException {
+		writeShortestRoute(A, B, Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER));
+	}
+
+    /**
+     * finds the shortest route (in distance) between A and B like findShortestRoute, but returns only the route
+     * @return
+     *      the route, a single node if A equals B, null if A or B is not on the map or there is no path
+     */
+	public Route findShortestPath(String A, String B) {
+		return findPath(A, B, Metric.DISTANCE);
+	}
+
+    /**
+     * finds the fastest route (in time) between A and B like findFastestRoute, but returns only the route
+     * @return
+     *      the route, a single node if A equals B, null if A or B is not on the map or there is no path
+     */
+	public Route findFastestPath(String A, String B) {
+		return findPath(A, B, Metric.TIME);
+	}
+
+    /**
+     * finds the cheapest route between A and B under metric
+     * @return
+     *      the route, a single node if A equals B, null if A or B is not on the map or there is no path
+     */
+	public Route findPath(String A, String B, Metric metric) {
+		MapState current = state;
+		int[] path = pathIds(current, A, B, metric);
+		return path == null ? null : Route.of(current.graph, path, metric);
 	}
 
 	/**
@@ -143,12 +195,32 @@ public class Navigation {
 	 *         returned.
 	 */
 	public ArrayList<String> findFastestRoute(String A, String B) {
-		if(!A.equals(B)) {
-			Node result = findPath(A, B, "Time, Distance");
-			if (!result.getName().equals("null") && !result.getName().equals("ToD"))
-				return makeMap(result);
-		}
-		return makeMap(null);
+		MapState current = state;
+		return makeMap(current.graph, routeIds(current, A, B, Metric.TIME));
+	}
+
+    /**
+     * streams the map of findFastestRoute(A, B) to out, one line per node and edge, without building the list
+     * @param out
+     *      receives the lines separated by '\n', it is flushed but not closed
+     */
+	public void writeFastestRoute(String A, String B, Writer out) throws IOException {
+		MapState current = state;
+		writeMap(current.graph, routeIds(current, A, B, Metric.TIME), out);
+	}
+
+    /**
+     * streams the map of findFastestRoute(A, B) UTF-8 encoded to out, which is flushed but not closed
+     */
+	public void writeFastestRoute(String A, String B, OutputStream out) throws IOException {
+		writeFastestRoute(A, B, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER));
+	}
+
+    /**
+     * streams the map of findFastestRoute(A, B) UTF-8 encoded to out, which is not closed
+     */
+	public void writeFastestRoute(String A, String B, WritableByteChannel out) throws IOException {
+		writeFastestRoute(A, B, Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER));
 	}
 
 	/**
@@ -168,8 +240,14 @@ public class Navigation {
 	 */
 	public int findShortestDistance(String A, String B) {
 		if(!A.equals(B)) {
-			Node result = findPath(A, B, "Distance");
-			return evaluateTimeAndDistance(result);
+			SearchContext context = acquireContext();
+			try {
+				MapState current = state;
+				int result = search(current, A, B, Metric.DISTANCE, context);
+				return evaluateTimeAndDistance(current.graph, result, context, Metric.DISTANCE);
+			} finally {
+				releaseContext(context);
+			}
 		}
 		return 0;
 	}
@@ -189,186 +267,814 @@ public class Navigation {
 	 */
 	public int findFastestTime(String pointA, String pointB) {
 		if(!pointA.equals(pointB)) {
-			Node result = findPath(pointA, pointB, "Time");
-			return evaluateTimeAndDistance(result);
+			SearchContext context = acquireContext();
+			try {
+				MapState current = state;
+				int result = search(current, pointA, pointB, Metric.TIME, context);
+				return evaluateTimeAndDistance(current.graph, result, context, Metric.TIME);
+			} finally {
+				releaseContext(context);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds the fastest route between A and B when leaving A at departureTime.
+	 * Edges with a speed profile (see WeightUpdate.setSpeedProfile) take as
+	 * long as their speed at the time they are driven allows, all others are
+	 * driven at their speed limit. Without profiles the result equals
+	 * findFastestTime(pointA, pointB). The search is always a time-dependent
+	 * Dijkstra, the search mode and the tree cache only apply to static queries.
+	 *
+	 * @param departureTime
+	 *            minutes after midnight at which point A is left, after its
+	 *            delay; larger values fall on the following days
+	 * @return the travel time in minutes rounded upwards, or the same error
+	 *         codes as findFastestTime
+	 */
+	public int findFastestTime(String pointA, String pointB, double departureTime) {
+		checkDeparture(departureTime);
+		if(!pointA.equals(pointB)) {
+			SearchContext context = acquireContext();
+			try {
+				MapState current = state;
+				int result = searchAt(current, pointA, pointB, departureTime, context);
+				return evaluateTimeAndDistance(current.graph, result, context, Metric.TIME);
+			} finally {
+				releaseContext(context);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds the fastest route between A and B when leaving A at departureTime,
+	 * see findFastestTime(A, B, departureTime), and marks it like
+	 * findFastestRoute(A, B).
+	 */
+	public ArrayList<String> findFastestRoute(String A, String B, double departureTime) {
+		checkDeparture(departureTime);
+		if(A.equals(B))
+			return makeMap(null);
+		SearchContext context = acquireContext();
+		try {
+			MapState current = state;
+			int result = searchAt(current, A, B, departureTime, context);
+			return makeMap(current.graph, result >= 0 ? context.pathTo(result) : null);
+		} finally {
+			releaseContext(context);
+		}
+	}
+
+	/**
+	 * Finds the travel time between A and B for every departure time of the
+	 * day at once, for choosing when to leave. Evaluating the result at a
+	 * departure time gives what findFastestTime(A, B, departureTime) finds,
+	 * before rounding up. Edges with a speed profile are approximated to a
+	 * hundredth of a minute each.
+	 *
+	 * @return the travel time in minutes by the minute A is left at (after its
+	 *         delay), null if A or B is not on the map or there is no path
+	 *         between them
+	 */
+	public TravelTimeFunction findTravelTimeFunction(String A, String B) {
+		MapState current = state;
+		int start = current.graph.findNode(A);
+		int end = current.graph.findNode(B);
+		if(checkEndpoints(start, end) < 0)
+			return null;
+		if(start == end)
+			return TravelTimeFunction.constant(0);
+		SearchContext context = acquireContext();
+		try {
+			long begin = NavigationStats.ENABLED ? System.nanoTime() : 0;
+			if(NavigationStats.ENABLED)
+				context.resetCounters();
+			TravelTimeFunction function = ProfileSearch.search(current.graph, start, end, context);
+			if(NavigationStats.ENABLED)
+				stats.recordQuery(context, System.nanoTime() - begin);
+			return function;
+		} finally {
+			releaseContext(context);
+		}
+	}
+
+	private static void checkDeparture(double departureTime){
+		if(Double.isNaN(departureTime) || Double.isInfinite(departureTime))
+			throw new IllegalArgumentException("invalid departure time " + departureTime);
+	}
+
+
+
+	/**
+	 * Finds the cheapest route between A and B under any metric, for example
+	 * an own toll or fuel metric. findCost(A, B, Metric.DISTANCE) equals
+	 * findShortestDistance(A, B).
+	 *
+	 * @param metric
+	 *            what to minimise
+	 * @return the cost of the route rounded upwards, without the departure cost
+	 *         of A, or the same error codes as findShortestDistance
+	 */
+	public int findCost(String A, String B, Metric metric) {
+		if(!A.equals(B)) {
+			SearchContext context = acquireContext();
+			try {
+				MapState current = state;
+				int result = search(current, A, B, metric, context);
+				return evaluateTimeAndDistance(current.graph, result, context, metric);
+			} finally {
+				releaseContext(context);
+			}
 		}
 		return 0;
 	}
 
+	/**
+	 * Finds the shortest distance in kilometers from every source to every
+	 * target. Only one search is run per distinct source, it stops as soon as
+	 * all targets are settled.
+	 *
+	 * @param sources
+	 *            start points, one row of the result each
+	 * @param targets
+	 *            destination points, one column of the result each
+	 * @param parallel
+	 *            true to run the searches of different sources on all cores
+	 * @return matrix[i][j] is what findShortestDistance(sources[i],
+	 *         targets[j]) returns, including its error codes
+	 */
+	public int[][] findShortestDistances(List<String> sources, List<String> targets, boolean parallel) {
+		return findMatrix(sources, targets, Metric.DISTANCE, parallel);
+	}
 
+	/**
+	 * Finds the fastest time in minutes from every source to every target.
+	 * Only one search is run per distinct source, it stops as soon as all
+	 * targets are settled.
+	 *
+	 * @param sources
+	 *            start points, one row of the result each
+	 * @param targets
+	 *            destination points, one column of the result each
+	 * @param parallel
+	 *            true to run the searches of different sources on all cores
+	 * @return matrix[i][j] is what findFastestTime(sources[i], targets[j])
+	 *         returns, including its error codes
+	 */
+	public int[][] findFastestTimes(List<String> sources, List<String> targets, boolean parallel) {
+		return findMatrix(sources, targets, Metric.TIME, parallel);
+	}
+
+	/**
+	 * Finds the cost under metric from every source to every target, like
+	 * findShortestDistances.
+	 *
+	 * @return matrix[i][j] is what findCost(sources[i], targets[j], metric)
+	 *         returns, including its error codes
+	 */
+	public int[][] findCosts(List<String> sources, List<String> targets, Metric metric, boolean parallel) {
+		return findMatrix(sources, targets, metric, parallel);
+	}
+
+    /**
+     * resolves the targets once, groups equal sources and fills the rows of every distinct source
+     */
+	private int[][] findMatrix(List<String> sources, List<String> targets, Metric metric, boolean parallel){
+		CompactGraph graph = state.graph;
+		int[][] matrix = new int[sources.size()][targets.size()];
+		boolean[] wanted = new boolean[graph.nodeCount()];
+		int[] targetIds = new int[targets.size()];
+		int wantedCount = 0;
+		for(int j = 0; j < targets.size(); j++){
+			int end = graph.findNode(targets.get(j));
+			targetIds[j] = end;
+			if(end >= 0 && !wanted[end]){
+				wanted[end] = true;
+				wantedCount++;
+			}
+		}
+
+		LinkedHashMap<String, ArrayList<Integer>> rowsBySource = new LinkedHashMap<>();
+		for(int i = 0; i < sources.size(); i++)
+			rowsBySource.computeIfAbsent(sources.get(i), k -> new ArrayList<>()).add(i);
+		ArrayList<String> distinctSources = new ArrayList<>(rowsBySource.keySet());
+
+		int count = wantedCount;
+		IntStream searches = IntStream.range(0, distinctSources.size());
+		if(parallel)
+			searches = searches.parallel();
+		searches.forEach(k -> {
+			String source = distinctSources.get(k);
+			fillRows(graph, source, rowsBySource.get(source), targets, targetIds, wanted, count, metric, matrix);
+		});
+		return matrix;
+	}
+
+    /**
+     * runs one search from source and writes its results into every row that belongs to source
+     */
+	private void fillRows(CompactGraph graph, String source, ArrayList<Integer> rows, List<String> targets, int[] targetIds,
+						  boolean[] wanted, int wantedCount, Metric metric, int[][] matrix){
+		int start = graph.findNode(source);
+		int[] row = matrix[rows.get(0)];
+		SearchContext context = start < 0 ? null : acquireContext();
+		try {
+			if(context != null){
+				long begin = NavigationStats.ENABLED ? System.nanoTime() : 0;
+				if(NavigationStats.ENABLED)
+					context.resetCounters();
+				context.dijkstra(graph, start, wanted, wantedCount, graph.costs(metric));
+				if(NavigationStats.ENABLED)
+					stats.recordQuery(context, System.nanoTime() - begin);
+			}
+			for(int j = 0; j < targets.size(); j++){
+				int end = targetIds[j];
+				if(source.equals(targets.get(j)))
+					row[j] = 0;
+				else if(checkEndpoints(start, end) < 0)
+					row[j] = checkEndpoints(start, end);
+				else if(context.getDistance(end) == Double.POSITIVE_INFINITY)
+					row[j] = NO_PATH;
+				else
+					row[j] = evaluateTimeAndDistance(graph, end, context, metric);
+			}
+		} finally {
+			if(context != null)
+				releaseContext(context);
+		}
+		for(int i = 1; i < rows.size(); i++)
+			System.arraycopy(row, 0, matrix[rows.get(i)], 0, row.length);
+	}
 
 	//TODO javadoc
 
     /**
-     * takes the result Node returned by findPath() and returns the time or distance required from point a to point b.
+     * takes the result returned by search() and returns the time or distance required from point a to point b.
+     * @param graph
+     *      version of the map search() ran on
      * @param result
-     *      Node returned by findPath(), with the name "null" and the distance or time required from point a to point b as the delay
+     *      value returned by search(), the id of point b or an error code
+     * @param context
+     *      context search() searched in
+     * @param metric
+     *      metric of the search, the departure cost of point a (its delay by time) is not part of the trip
      * @return
-     *      time or distance required from point a to point b in km or minutes
+     *      time or distance required from point a to point b in km or minutes, or the error code
      */
-	private int evaluateTimeAndDistance(Node result){
-	    return (int)Math.ceil(result.getDelay());
+	private int evaluateTimeAndDistance(CompactGraph graph, int result, SearchContext context, Metric metric){
+		if(result < 0)
+			return result;
+		double value = context.getDistance(result) - graph.costs(metric).departure[context.getSource()];
+	    return (int)Math.ceil(value);
 	}
 
-	//TODO JAVADOC
-
     /**
      * Dijkstra's single source pathfinding algorithm
+     * @param current
+     *      the version of the map to search
      * @param A
      *      source
      * @param B
      *      destination
-     * @param type
-     *      identifier which function called findPath and what result-type is going to be returned
+     * @param metric
+     *      what to minimise
+     * @param context
+     *      search state of the calling thread, holds distances and the path afterwards
      * @return
-     *      End node if a path is found, else a new node with name="null" and delay as the error value
-     */
-	private Node findPath(String A, String B, String type){
-		//initialize nodes for searching, find start and end Nodes if existing
-        //creating auxillary variables
-		boolean foundStart = false;
-		boolean foundEnd = false;
-		boolean foundPath = false;
-		Node start = null;
-		Node end = null;
-		PriorityQueue<Node> queue = new PriorityQueue<>(1, (Node n1, Node n2) -> n1.getDistanceToStart() < n2.getDistanceToStart() ? -1 : 1);
-
-		//set distance to start of every node to +infinity, and previous in path to null, basically resetting
-        //also looking if A and B are included in the map, finally add everything into a priority queue
-		for(int i = 0; i < cities.size(); i++){
-			Node currentNode = cities.get(i);
-			currentNode.setDistanceToStart(Double.POSITIVE_INFINITY);
-			currentNode.setPreviousInPath(null);
-			if (currentNode.getName().equals(A)){
-				start = currentNode;
-				start.setDistanceToStart(0);
-				foundStart = true;
+     *      id of the end node if a path is found, else SOURCE_NOT_FOUND, DESTINATION_NOT_FOUND,
+     *      SOURCE_DESTINATION_NOT_FOUND or NO_PATH
+     */
+	private int search(MapState current, String A, String B, Metric metric, SearchContext context){
+		if(!NavigationStats.ENABLED)
+			return searchPath(current, A, B, metric, context);
+		long begin = System.nanoTime();
+		context.resetCounters();
+		int result = searchPath(current, A, B, metric, context);
+		stats.recordQuery(context, System.nanoTime() - begin);
+		return result;
+	}
+
+    /**
+     * time-dependent search from A to B leaving A at departureTime, see SearchContext.earliestArrival
+     * @return
+     *      id of the end node if a path is found, else the same error codes as search
+     */
+	private int searchAt(MapState current, String A, String B, double departureTime, SearchContext context){
+		int start = current.graph.findNode(A);
+		int end = current.graph.findNode(B);
+		int notFound = checkEndpoints(start, end);
+		if(notFound < 0)
+			return notFound;
+		long begin = NavigationStats.ENABLED ? System.nanoTime() : 0;
+		if(NavigationStats.ENABLED)
+			context.resetCounters();
+		boolean found = context.earliestArrival(current.graph, start, end, departureTime, !fullExpansion);
+		if(NavigationStats.ENABLED)
+			stats.recordQuery(context, System.nanoTime() - begin);
+		return found ? end : NO_PATH;
+	}
+
+	private int searchPath(MapState current, String A, String B, Metric metric, SearchContext context){
+		CompactGraph graph = current.graph;
+		int start = graph.findNode(A);
+		int end = graph.findNode(B);
+
+		//start and/or end not found
+		int notFound = checkEndpoints(start, end);
+		if(notFound < 0)
+			return notFound;
+		//actual algorithm
+		CostTable costs = graph.costs(metric);
+		//the heuristics and the hierarchy only know the two built-in metrics
+		boolean builtIn = metric == Metric.DISTANCE || metric == Metric.TIME;
+		boolean found;
+		TreeCache cache = treeCache;
+		if(cache != null){
+			//answer from the complete tree of the source, computing and caching it first if needed
+			ShortestPathTree tree = cache.get(start, metric, graph.getVersion());
+			if(tree == null){
+				tree = ShortestPathTree.compute(graph, start, metric, context);
+				cache.put(tree);
 			}
-			if(cities.get(i).getName().equals(B)){
-				end = currentNode;
-				foundEnd = true;
+			return tree.copyPathTo(end, context) ? end : NO_PATH;
+		}
+		Landmarks alt = current.landmarks;
+		SearchMode mode = searchMode;
+		ContractionHierarchy hierarchy = current.hierarchy;
+		if(mode == SearchMode.BIDIRECTIONAL || (mode == SearchMode.CONTRACTION_HIERARCHY && metric == Metric.TIME && hierarchy != null)){
+			SearchContext backward = acquireContext();
+			try {
+				if(NavigationStats.ENABLED)
+					backward.resetCounters();
+				if(mode == SearchMode.BIDIRECTIONAL)
+					found = BidirectionalSearch.search(graph, start, end, costs, context, backward);
+				else
+					found = hierarchy.search(graph, start, end, context, backward);
+			} finally {
+				if(NavigationStats.ENABLED)
+					context.absorbCounters(backward);
+				releaseContext(backward);
 			}
-			queue.offer(currentNode);
 		}
-		if (foundStart)
-		    start.updateNeighbors(type);
-		queue.remove(start);
-		//end of initialization
+		else if(mode == SearchMode.ASTAR && builtIn && graph.hasPositions())
+			found = AStarSearch.search(graph, start, end, costs,
+					new EuclideanHeuristic(graph, end, metric), context);
+		else if(mode == SearchMode.ALT && builtIn && alt != null)
+			found = AStarSearch.search(graph, start, end, costs,
+					alt.towards(end, metric), context);
+		else
+			found = context.dijkstra(graph, start, end, costs, !fullExpansion);
+		if(found)
+			return end;
+		return NO_PATH;
+	}
 
-		//start and/or end not found
-		if(!foundStart && !foundEnd)
-			return new Node("null", SOURCE_DESTINATION_NOT_FOUND);
-		if(!foundStart){
-			return new Node("null", SOURCE_NOT_FOUND);
+    /**
+     * @return
+     *      node ids of the route from A to B, null if there is none or A equals B
+     */
+	private int[] routeIds(MapState current, String A, String B, Metric metric){
+		if(A.equals(B))
+			return null;
+		return pathIds(current, A, B, metric);
+	}
+
+    /**
+     * @return
+     *      node ids of the route from A to B, null if there is none
+     */
+	private int[] pathIds(MapState current, String A, String B, Metric metric){
+		if(A.equals(B)){
+			int node = current.graph.findNode(A);
+			return node >= 0 ? new int[] { node } : null;
+		}
+		SearchContext context = acquireContext();
+		try {
+			int result = search(current, A, B, metric, context);
+			return result >= 0 ? context.pathTo(result) : null;
+		} finally {
+			releaseContext(context);
+		}
+	}
+
+    /**
+     * @return
+     *      SOURCE_NOT_FOUND, DESTINATION_NOT_FOUND or SOURCE_DESTINATION_NOT_FOUND if start and/or end are missing
+     *      on the map (-1), else 0
+     */
+	private static int checkEndpoints(int start, int end){
+		if(start < 0 && end < 0)
+			return SOURCE_DESTINATION_NOT_FOUND;
+		if(start < 0)
+			return SOURCE_NOT_FOUND;
+		if(end < 0)
+			return DESTINATION_NOT_FOUND;
+		return 0;
+	}
+
+    /**
+     * takes a search context from the pool, so concurrent queries never share search state
+     * @return
+     *      a context for this map, created with the current queue strategy if the pool is empty
+     */
+	private SearchContext acquireContext(){
+		SearchContext context = contexts.poll();
+		if(context == null)
+			context = new SearchContext(state.graph.nodeCount(), queueFactory.apply(state.graph.nodeCount()));
+		return context;
+	}
+
+	private void releaseContext(SearchContext context){
+		contexts.offer(context);
+	}
+
+    /**
+     * by default findPath stops as soon as the destination is settled. With full expansion enabled it keeps
+     * going until every node reachable from the source is settled, for callers that need every shortest path from A
+     * @param fullExpansion
+     *      true to explore the whole reachable map on every query
+     */
+	public void setFullExpansion(boolean fullExpansion){
+		this.fullExpansion = fullExpansion;
+	}
+
+    /**
+     * keeps the complete shortest path trees of the most recently used sources. Queries from a cached source
+     * only walk the path, a query from a new source computes the whole tree once
+     * @param maxTrees
+     *      number of trees kept per metric and source, 0 disables the cache (default)
+     */
+	public void setTreeCacheSize(int maxTrees){
+		this.treeCache = maxTrees > 0 ? new TreeCache(maxTrees) : null;
+	}
+
+    /**
+     * @return
+     *      work and latency counters of this Navigation, all 0 unless the JVM runs with -Dlab.stats=true
+     */
+	public NavigationStats getStats(){
+		return stats;
+	}
+
+    /**
+     * publishes getStats() on the platform MBean server as lab:type=Navigation,name=<name>
+     */
+	public void registerMBean(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(stats,
+				new ObjectName("lab:type=Navigation,name=" + ObjectName.quote(name)));
+	}
+
+    /**
+     * @return
+     *      the tree cache, null if it is disabled
+     */
+	public TreeCache getTreeCache(){
+		return treeCache;
+	}
+
+    /**
+     * selects the algorithm used for all queries, DIJKSTRA by default. Full expansion only applies to DIJKSTRA
+     * @param mode
+     *      the algorithm
+     */
+	public void setSearchMode(SearchMode mode){
+		this.searchMode = mode;
+	}
+
+    /**
+     * prepares landmarks for SearchMode.ALT. The tables are read from [filename].landmarks if that file was
+     * written for this map with the same number of landmarks, else they are computed and saved there. The file
+     * only holds tables for the weights of the map file, after update() they are computed without touching it
+     * @param count
+     *      number of landmarks, more landmarks give better bounds but cost memory and preprocessing time
+     */
+	public void useLandmarks(int count){
+		CompactGraph graph = state.graph;
+		String landmarkFile = graph.getVersion() == 0 ? filename + ".landmarks" : null;
+		Landmarks tables = landmarkFile == null ? null : readLandmarks(landmarkFile, graph, count);
+		if(tables == null){
+			tables = Landmarks.compute(graph, count);
+			if(landmarkFile != null){
+				try {
+					tables.save(landmarkFile);
+				} catch (IOException e){
+					//the file only saves preprocessing time for the next instance, the tables work without it
+				}
+			}
+		}
+		Landmarks computed = tables;
+		install(graph, current -> new MapState(graph, computed, current.hierarchy));
+	}
+
+    /**
+     * @return
+     *      the tables of landmarkFile if they were computed for graph with count landmarks, else null
+     */
+	private Landmarks readLandmarks(String landmarkFile, CompactGraph graph, int count){
+		if(!new File(landmarkFile).isFile())
+			return null;
+		try {
+			Landmarks tables = Landmarks.load(landmarkFile);
+			if(tables.matches(graph) && tables.getLandmarks().length == Math.min(count, graph.nodeCount()))
+				return tables;
+		} catch (IOException e){
+			//unreadable or not a landmark file, the tables are computed again
+		}
+		return null;
+	}
+
+    /**
+     * @param landmarks
+     *      landmark tables computed for this map, or null to fall back to plain Dijkstra in SearchMode.ALT
+     */
+	public void setLandmarks(Landmarks landmarks){
+		CompactGraph graph = state.graph;
+		if(landmarks != null && !landmarks.matches(graph))
+			throw new IllegalArgumentException("landmarks were computed for a different map");
+		install(graph, current -> new MapState(graph, landmarks, current.hierarchy));
+	}
+
+    /**
+     * contracts the map for SearchMode.CONTRACTION_HIERARCHY, fastest time and fastest route queries
+     * then only search upwards in the hierarchy
+     */
+	public void useContractionHierarchy(){
+		CompactGraph graph = state.graph;
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		install(graph, current -> new MapState(graph, current.landmarks, hierarchy));
+	}
+
+    /**
+     * @param hierarchy
+     *      hierarchy built for this map, or null to fall back to plain Dijkstra in SearchMode.CONTRACTION_HIERARCHY
+     */
+	public void setContractionHierarchy(ContractionHierarchy hierarchy){
+		CompactGraph graph = state.graph;
+		if(hierarchy != null && !hierarchy.matches(graph))
+			throw new IllegalArgumentException("contraction hierarchy was built for a different map");
+		install(graph, current -> new MapState(graph, current.landmarks, hierarchy));
+	}
+
+    /**
+     * sets the landmarks or the contraction hierarchy prepared for graph, unless the weights were updated since
+     */
+	private void install(CompactGraph graph, UnaryOperator<MapState> change){
+		synchronized(updateLock){
+			if(state.graph == graph)
+				state = change.apply(state);
 		}
-		if(!foundEnd){
-			return new Node("null", DESTINATION_NOT_FOUND);
-		}//actual algorithm
-		else{
-			Node currentNode;
-			updateQueue(start, queue);
-
-			while(queue.size() > 0) {
-                //check if there is an edge connecting the next node in the queue to the path, if not remove the item
-				if(queue.peek().getPreviousInPath() == null)
-					queue.poll();
-				else {
-					currentNode = queue.poll();
-					if (currentNode == end)
-						foundPath = true;
-					//update distanceToStart of every node connected to ucrrent node and set previousInPath to current Node
-					currentNode.updateNeighbors(type);
-					updateQueue(currentNode, queue);
+	}
+
+    /**
+     * applies a batch of weight changes. Queries running meanwhile finish on the previous version of the map,
+     * later ones see the new version. Only this Navigation sees the changes, other instances reading the same
+     * file keep the parsed weights.
+     *
+     * Cached shortest path trees are repaired instead of computed again, see ShortestPathTree.repair; only the
+     * nodes whose paths change are settled again. Landmarks are kept if no weight decreased, their bounds only get weaker then. The
+     * contraction hierarchy is dropped if a weight changed, useContractionHierarchy() builds it again for the new
+     * weights. Speed profiles only affect the searches with a departure time, like findFastestTime(A, B, departureTime)
+     *
+     * SearchMode.ASTAR still needs every distance to be at least the straight line between the nodes
+     * @param update
+     *      the changes, applied all at once
+     * @return
+     *      the version of the map after the update, see CompactGraph.getVersion
+     * @throws IllegalArgumentException
+     *      if a node or an edge of update is not on the map, nothing is changed then
+     */
+	public long update(WeightUpdate update){
+		synchronized(updateLock){
+			MapState current = state;
+			CompactGraph old = current.graph;
+			if(update.isEmpty())
+				return old.getVersion();
+			double[] delay = old.delay.clone();
+			double[] distance = old.distance.clone();
+			double[] maxSpeed = old.maxSpeed.clone();
+			//edge slots whose weight may change, by a new distance or speed or a new delay of the node they leave
+			BitSet changed = new BitSet(old.edgeCount());
+			for(int i = 0; i < update.edges.size(); i++){
+				String[] names = update.edges.get(i);
+				double[] values = update.edgeValues.get(i);
+				for(int e : edgeSlots(old, names[0], names[1])){
+					if(!Double.isNaN(values[0]))
+						distance[e] = values[0];
+					if(!Double.isNaN(values[1]))
+						maxSpeed[e] = values[1];
+					changed.set(e);
 				}
 			}
-			if(foundPath){
-			    //if we are interested in the distance or time required from point a to point b, create a new node
-                // with "ToD" as the name and the distance/time to start as the delay
-				if(type.equals("Distance"))
-					return new Node("ToD", (int)Math.ceil(end.getDistanceToStart()));
-				else if(type.equals("Time"))
-					return new Node("ToD", (int)Math.ceil(end.getDistanceToStart() - start.getDelay()));
-				//else we return the last node of the path, from which makeMap() will reconstruct the path
-				return end;
-			}else{
-			    //if no path is found return a new node with the name "null" and NO_PATH as delay
-				return new Node("null", NO_PATH);
+			for(int i = 0; i < update.nodes.size(); i++){
+				int node = old.findNode(update.nodes.get(i));
+				if(node < 0)
+					throw new IllegalArgumentException("node " + update.nodes.get(i) + " is not on the map");
+				delay[node] = update.delays.get(i);
+				changed.set(old.offsets[node], old.offsets[node + 1]);
+			}
+			//profiles only matter to time-dependent searches, they change none of the static weights
+			SpeedProfile[] profile = null;
+			if(!update.profileEdges.isEmpty()){
+				profile = new SpeedProfile[old.edgeCount()];
+				for(int e = 0; e < profile.length; e++)
+					profile[e] = old.getProfile(e);
+				for(int i = 0; i < update.profileEdges.size(); i++){
+					String[] names = update.profileEdges.get(i);
+					for(int e : edgeSlots(old, names[0], names[1]))
+						profile[e] = update.profiles.get(i);
+				}
+			}
+
+			CompactGraph next = old.withWeights(delay, distance, maxSpeed, profile);
+			boolean decreased = decreased(old, next, Metric.DISTANCE, changed) || decreased(old, next, Metric.TIME, changed);
+			state = new MapState(next, decreased ? null : current.landmarks, changed.isEmpty() ? current.hierarchy : null);
+			TreeCache cache = treeCache;
+			if(cache != null){
+				SearchContext context = acquireContext();
+				try {
+					context.reset();
+					cache.migrate(next.getVersion(), tree -> tree.repair(old, next, changed, context.queue));
+				} finally {
+					releaseContext(context);
+				}
 			}
+			return next.getVersion();
 		}
 	}
 
     /**
-     * removes and reinserts every node connected to ...
-     * @param n
-     *      ... in order to refresh priority
-     * @param q
-     *      queue that is being used
+     * @return
+     *      the slots of every edge from A to B
+     * @throws IllegalArgumentException
+     *      if there is no such edge
      */
-	private void updateQueue(Node n, PriorityQueue q){
-		for (int i = 0; i < n.getEdges().size(); i++){
-			if(q.remove(n.getEdge(i).getB()))
-				q.offer(n.getEdge(i).getB());
+	private int[] edgeSlots(CompactGraph g, String A, String B){
+		int a = g.findNode(A);
+		int b = g.findNode(B);
+		int count = 0;
+		int[] slots = new int[a < 0 ? 0 : g.offsets[a + 1] - g.offsets[a]];
+		if(a >= 0 && b >= 0)
+			for(int e = g.offsets[a]; e < g.offsets[a + 1]; e++)
+				if(g.targets[e] == b)
+					slots[count++] = e;
+		if(count == 0)
+			throw new IllegalArgumentException("edge " + A + " -> " + B + " is not on the map");
+		return Arrays.copyOf(slots, count);
+	}
+
+    /**
+     * @return
+     *      true if an edge in changed got cheaper under metric from old to next
+     */
+	private static boolean decreased(CompactGraph old, CompactGraph next, Metric metric, BitSet changed){
+		CostTable before = old.costs(metric);
+		CostTable after = next.costs(metric);
+		for(int e = changed.nextSetBit(0); e >= 0; e = changed.nextSetBit(e + 1)){
+			int u = old.sources[e];
+			if(after.departure[u] + after.edge[e] < before.departure[u] + before.edge[e])
+				return true;
 		}
+		return false;
+	}
+
+    /**
+     * writes the map as a binary snapshot that GraphSnapshot.open() maps into memory without parsing
+     * @param snapshotFile
+     *      file to write
+     */
+	public void writeSnapshot(String snapshotFile) throws IOException {
+		GraphSnapshot.write(state.graph, snapshotFile);
+	}
+
+    /**
+     * @return
+     *      the current version of the map as arrays, for preprocessing steps like Landmarks.compute()
+     */
+	public CompactGraph getGraph(){
+		return state.graph;
+	}
+
+    /**
+     * sets the priority queue implementation used by the path search,
+     * e.g. IndexedHeapQueue::new (default) or LazyHeapQueue::new
+     * @param factory
+     *      creates a queue for a given number of nodes
+     */
+	public void setQueueStrategy(IntFunction<NodeQueue> factory){
+		this.queueFactory = factory;
+		this.contexts.clear();
 	}
 
 	/**
-	 * creates a String map of an Arraylist. If endpoint is specified/ not null it will create a map with the
-	 * shortest path to the end point
-	 * @param endpoint
-	 * 				if algorithm found a shortest path this is the end point of that path else null
+	 * creates a String map of an Arraylist. If path is specified/ not null it will create a map with that
+	 * path marked bold
+	 * @param path
+	 * 				if algorithm found a shortest path the node ids of that path from start to end point else null
 	 * @return
 	 * 		Arraylist of strings of the map
 	 */
-	public ArrayList<String> makeMap(Node endpoint){
-		//no endpoint found
-		if(endpoint == null){
-			ArrayList<String> map = new ArrayList<>();
-			String currentLine = "Digraph {";
-			Node currentNode;
-			Edge currentEdge;
-			map.add(currentLine);
-			for(int i = 0; i < cities.size(); i ++){
-				currentNode = cities.get(i);
-				for(int j = 0; j < currentNode.getEdges().size(); j++) {
-					currentEdge = currentNode.getEdge(j);
-					map.add(map.size() - i, currentNode.getName() + " -> " + currentEdge.getB().getName() + " [label=\" " + currentEdge.getDistance() + "," + currentEdge.getMaxSpeed() + "\"];");
-				}
-				map.add(currentNode.getName() + " [label=\"" + currentNode.getName() + "," + currentNode.getDelay()+ "\"];");
-			}
-			map.add("}");
-			return map;
-		}else {
-			Node currentNode = endpoint;
-			ArrayList<Node> path = new ArrayList<>();
-			while(currentNode != null){
-				path.add(currentNode);
-				currentNode = currentNode.getPreviousInPath();
-			}
+	public ArrayList<String> makeMap(int[] path){
+		return makeMap(state.graph, path);
+	}
 
-			ArrayList<String> map = new ArrayList<>();
-			Edge currentEdge;
-			map.add("Digraph {");
-			boolean partOfPath;
-			for(int i = 0; i < cities.size(); i ++) {
-				currentNode = cities.get(i);
-				if (path.contains(currentNode))
-					partOfPath = true;
-				else
-					partOfPath = false;
-				for (int j = 0; j < currentNode.getEdges().size(); j++) {
-					currentEdge = currentNode.getEdge(j);
-					if (partOfPath && path.contains(currentEdge.getB()) && currentEdge.getB().getPreviousInPath() == currentNode)
-						map.add(map.size() - i, currentNode.getName() + " -> " + currentEdge.getB().getName() + " [label=\"" + currentEdge.getDistance() + "," + currentEdge.getMaxSpeed() + "\"][style=bold];");
-					else
-						map.add(map.size() - i, currentNode.getName() + " -> " + currentEdge.getB().getName() + " [label=\"" + currentEdge.getDistance() + "," + currentEdge.getMaxSpeed() + "\"];");
-				}
-				if (partOfPath)
-					map.add(currentNode.getName() + " [label=\"" + currentNode.getName() + "," + currentNode.getDelay() + "\"][style=bold];");
-				else
-					map.add(currentNode.getName() + " [label=\"" + currentNode.getName() + "," + currentNode.getDelay() + "\"];");
+    /**
+     * @param g
+     *      the version of the map the path was found on, its weights are written
+     */
+	private ArrayList<String> makeMap(CompactGraph g, int[] path){
+		ArrayList<String> map = new ArrayList<>(g.edgeCount() + g.nodeCount() + 2);
+		try {
+			renderMap(g, path, line -> map.add(line.toString()));
+		} catch (IOException e){e.printStackTrace();}
+		return map;
+	}
+
+    /**
+     * @param route
+     *      route to mark bold, null for the plain map
+     * @return
+     *      the map with route marked bold, as returned by findShortestRoute/findFastestRoute
+     */
+	public ArrayList<String> makeRouteMap(Route route){
+		return route == null ? makeMap(null) : makeMap(route.graph(), route.nodeIds());
+	}
+
+    /**
+     * writes the lines of makeMap(path) to out, each followed by '\n'
+     * @param out
+     *      flushed but not closed
+     */
+	public void writeMap(int[] path, Writer out) throws IOException {
+		writeMap(state.graph, path, out);
+	}
+
+	private void writeMap(CompactGraph g, int[] path, Writer out) throws IOException {
+		char[][] chunk = { new char[128] };
+		renderMap(g, path, line -> {
+			int length = line.length();
+			if(length >= chunk[0].length)
+				chunk[0] = new char[2 * length + 1];
+			line.getChars(0, length, chunk[0], 0);
+			chunk[0][length] = '\n';
+			out.write(chunk[0], 0, length + 1);
+		});
+		out.flush();
+	}
+
+	/**
+	 * receives the map line by line, the builder is reused for the next line
+	 */
+	private interface MapLines {
+		void line(StringBuilder line) throws IOException;
+	}
+
+    /**
+     * @param g
+     *      the version of the map whose weights are written, the one the path was found on
+     */
+	private void renderMap(CompactGraph g, int[] path, MapLines out) throws IOException {
+		long begin = NavigationStats.ENABLED ? System.nanoTime() : 0;
+		//predecessor of every node on the path, -1 for the first node and NOT_ON_PATH for all others
+		int[] pathPrevious = new int[g.nodeCount()];
+		Arrays.fill(pathPrevious, NOT_ON_PATH);
+		if(path != null)
+			for(int i = 0; i < path.length; i++)
+				pathPrevious[path[i]] = i == 0 ? -1 : path[i - 1];
+
+		//the edges of g are in the same order as in the nodes
+		//all edge lines come before all node lines, so both sections are written in one pass each
+		StringBuilder line = new StringBuilder(64);
+		line.append("Digraph {");
+		out.line(line);
+		for(int i = 0; i < g.nodeCount(); i ++) {
+			boolean partOfPath = pathPrevious[i] != NOT_ON_PATH;
+			for (int e = g.offsets[i]; e < g.offsets[i + 1]; e++) {
+				int b = g.targets[e];
+				line.setLength(0);
+				line.append(g.names[i]).append(" -> ").append(g.names[b]);
+				//without a path the label keeps its leading blank
+				line.append(path == null ? " [label=\" " : " [label=\"");
+				line.append(g.distance[e]).append(',').append(g.maxSpeed[e]).append("\"]");
+				if (partOfPath && pathPrevious[b] == i)
+					line.append("[style=bold]");
+				out.line(line.append(';'));
 			}
-			map.add("}");
-			return map;
 		}
+		for(int i = 0; i < g.nodeCount(); i ++) {
+			line.setLength(0);
+			line.append(g.names[i]).append(" [label=\"").append(g.names[i]).append(',').append(g.delay[i]).append('"');
+			if(g.hasPosition(i))
+				line.append(", pos=\"").append(g.x[i]).append(',').append(g.y[i]).append('"');
+			line.append(']');
+			if(pathPrevious[i] != NOT_ON_PATH)
+				line.append("[style=bold]");
+			out.line(line.append(';'));
+		}
+		line.setLength(0);
+		out.line(line.append('}'));
+		if(NavigationStats.ENABLED)
+			stats.recordRender(System.nanoTime() - begin);
 	}
 }
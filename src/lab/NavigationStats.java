@@ -0,0 +1,230 @@
+package lab;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Work and latency counters of one Navigation, aggregated over all queries
+ * and threads without locks.
+ *
+ * Counting is switched on for the whole JVM with -Dlab.stats=true. ENABLED
+ * is a constant, so when it is false the JIT removes every counting branch
+ * from the search loops and all counters stay 0.
+ */
+public class NavigationStats implements NavigationStatsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("lab.stats");
+
+    private static final ThreadLocal<Snapshot> LAST_QUERY = new ThreadLocal<>();
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder relaxed = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder rekeyed = new LongAdder();
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+    private volatile long loadNanos;
+
+    /**
+     * Counter values at one moment. Sums over many queries when returned by
+     * snapshot(), the counts of one query when returned by lastQuery().
+     */
+    public static class Snapshot {
+        private final long queries;
+        private final long settled;
+        private final long relaxed;
+        private final long pushed;
+        private final long rekeyed;
+        private final long nanos;
+
+        Snapshot(long queries, long settled, long relaxed, long pushed, long rekeyed, long nanos){
+            this.queries = queries;
+            this.settled = settled;
+            this.relaxed = relaxed;
+            this.pushed = pushed;
+            this.rekeyed = rekeyed;
+            this.nanos = nanos;
+        }
+
+        public long getQueries(){
+            return queries;
+        }
+
+        /**
+         * @return
+         *      nodes taken out of the queue
+         */
+        public long getSettledNodes(){
+            return settled;
+        }
+
+        /**
+         * @return
+         *      edges (or shortcut arcs) looked at
+         */
+        public long getRelaxedEdges(){
+            return relaxed;
+        }
+
+        /**
+         * @return
+         *      nodes put into the queue for the first time
+         */
+        public long getQueuePushes(){
+            return pushed;
+        }
+
+        /**
+         * @return
+         *      keys lowered for nodes already in the queue
+         */
+        public long getQueueRekeys(){
+            return rekeyed;
+        }
+
+        /**
+         * @return
+         *      time spent in the queries
+         */
+        public long getNanos(){
+            return nanos;
+        }
+
+        @Override
+        public String toString(){
+            return "queries=" + queries + " settled=" + settled + " relaxed=" + relaxed
+                    + " pushed=" + pushed + " rekeyed=" + rekeyed + " nanos=" + nanos;
+        }
+    }
+
+    /**
+     * adds the counters of the query that just ran in context
+     */
+    void recordQuery(SearchContext context, long nanos){
+        queries.increment();
+        settled.add(context.settled);
+        relaxed.add(context.relaxed);
+        pushed.add(context.pushed);
+        rekeyed.add(context.rekeyed);
+        queryLatency.record(nanos);
+        LAST_QUERY.set(new Snapshot(1, context.settled, context.relaxed, context.pushed, context.rekeyed, nanos));
+    }
+
+    void recordRender(long nanos){
+        renderLatency.record(nanos);
+    }
+
+    void recordLoad(long nanos){
+        loadNanos = nanos;
+    }
+
+    /**
+     * @return
+     *      the totals of all queries so far
+     */
+    public Snapshot snapshot(){
+        return new Snapshot(queries.sum(), settled.sum(), relaxed.sum(), pushed.sum(), rekeyed.sum(), queryLatency.getSum());
+    }
+
+    /**
+     * @return
+     *      the counters of the last query the calling thread ran on any Navigation, null if there was none
+     */
+    public static Snapshot lastQuery(){
+        return LAST_QUERY.get();
+    }
+
+    /**
+     * @return
+     *      latency of every query (and of every source of a distance matrix) in nanoseconds
+     */
+    public LatencyHistogram getQueryLatency(){
+        return queryLatency;
+    }
+
+    /**
+     * @return
+     *      time makeMap and writeMap took in nanoseconds
+     */
+    public LatencyHistogram getRenderLatency(){
+        return renderLatency;
+    }
+
+    @Override
+    public long getQueries(){
+        return queries.sum();
+    }
+
+    @Override
+    public long getSettledNodes(){
+        return settled.sum();
+    }
+
+    @Override
+    public long getRelaxedEdges(){
+        return relaxed.sum();
+    }
+
+    @Override
+    public long getQueuePushes(){
+        return pushed.sum();
+    }
+
+    @Override
+    public long getQueueRekeys(){
+        return rekeyed.sum();
+    }
+
+    /**
+     * @return
+     *      time the constructor took to parse the map, or to find it in the GraphCache
+     */
+    @Override
+    public long getLoadMicros(){
+        return TimeUnit.NANOSECONDS.toMicros(loadNanos);
+    }
+
+    @Override
+    public long getQueryP50Micros(){
+        return TimeUnit.NANOSECONDS.toMicros(queryLatency.getPercentile(50));
+    }
+
+    @Override
+    public long getQueryP99Micros(){
+        return TimeUnit.NANOSECONDS.toMicros(queryLatency.getPercentile(99));
+    }
+
+    @Override
+    public long getQueryMaxMicros(){
+        return TimeUnit.NANOSECONDS.toMicros(queryLatency.getMax());
+    }
+
+    @Override
+    public long getRenders(){
+        return renderLatency.getCount();
+    }
+
+    @Override
+    public long getRenderP50Micros(){
+        return TimeUnit.NANOSECONDS.toMicros(renderLatency.getPercentile(50));
+    }
+
+    @Override
+    public long getRenderP99Micros(){
+        return TimeUnit.NANOSECONDS.toMicros(renderLatency.getPercentile(99));
+    }
+
+    /**
+     * sets every counter and histogram back to 0, the load time is kept
+     */
+    @Override
+    public void reset(){
+        queries.reset();
+        settled.reset();
+        relaxed.reset();
+        pushed.reset();
+        rekeyed.reset();
+        queryLatency.reset();
+        renderLatency.reset();
+    }
+}
@@ -0,0 +1,21 @@
+package lab;
+
+/**
+ * JMX view of NavigationStats, see Navigation.registerMBean. Times are in
+ * microseconds.
+ */
+public interface NavigationStatsMBean {
+    long getQueries();
+    long getSettledNodes();
+    long getRelaxedEdges();
+    long getQueuePushes();
+    long getQueueRekeys();
+    long getLoadMicros();
+    long getQueryP50Micros();
+    long getQueryP99Micros();
+    long getQueryMaxMicros();
+    long getRenders();
+    long getRenderP50Micros();
+    long getRenderP99Micros();
+    void reset();
+}
@@ -5,18 +5,21 @@ import java.util.ArrayList;
 public class Node {
     private final String name;
     private final double delay;
+    private final int id;
     private ArrayList<Edge> edges;
-    private boolean done;
-    private double distanceToStart;
-    private Node previousInPath;
+    private boolean hasPosition;
+    private double x;
+    private double y;
 
     public Node (String name, int delay){
+        this(name, delay, -1);
+    }
+
+    public Node (String name, int delay, int id){
         this.name = name;
         this.delay = delay;
+        this.id = id;
         this.edges = new ArrayList<>();
-        this.distanceToStart = Double.POSITIVE_INFINITY;
-        this.previousInPath = null;
-        this.done = false;
     }
 
     public String getName(){
@@ -27,51 +30,38 @@ public class Node {
         return this.delay;
     }
 
-    public ArrayList<Edge> getEdges(){
-        return this.edges;
+    public int getId(){
+        return this.id;
     }
 
-    public Edge getEdge(int index){
-        return this.edges.get(index);
+    public boolean hasPosition(){
+        return this.hasPosition;
     }
 
-    public void addEdge(Edge e){
-        this.edges.add(e);
+    public double getX(){
+        return this.x;
     }
 
-    public double getDistanceToStart(){ return  this.distanceToStart; }
-
-    public void setDistanceToStart(double newDistance){ this.distanceToStart = newDistance; }
-
-    public Node getPreviousInPath(){ return this.previousInPath; }
-
-    public void setPreviousInPath(Node newNode){ this.previousInPath = newNode; }
+    public double getY(){
+        return this.y;
+    }
 
-    public boolean isFinished(){ return this.done; }
+    public void setPosition(double x, double y){
+        this.x = x;
+        this.y = y;
+        this.hasPosition = true;
+    }
 
-    public void finished(){ this.done = true; }
+    public ArrayList<Edge> getEdges(){
+        return this.edges;
+    }
 
+    public Edge getEdge(int index){
+        return this.edges.get(index);
+    }
 
-    public void updateNeighbors(String type){
-        if(type == "Route, Distance" || type == "Distance"){
-            for(int i = 0; i < edges.size(); i++){
-                Edge currentEdge = edges.get(i);
-                if(this.distanceToStart + currentEdge.getDistance() < currentEdge.getB().distanceToStart) {
-                    currentEdge.getB().setDistanceToStart(this.distanceToStart + currentEdge.getDistance());
-                    currentEdge.getB().setPreviousInPath(this);
-                }
-            }
-        }
-        else if(type == "Time, Distance" || type == "Time"){
-            for(int i = 0; i < edges.size(); i++){
-                Edge currentEdge = edges.get(i);
-                double edgeTime = currentEdge.getDistance() / currentEdge.getMaxSpeed() * 60;
-                if(this.distanceToStart + this.delay + edgeTime < currentEdge.getB().distanceToStart) {
-                    currentEdge.getB().setDistanceToStart(this.distanceToStart + this.delay + edgeTime);
-                    currentEdge.getB().setPreviousInPath(this);
-                }
-            }
-        }
+    public void addEdge(Edge e){
+        this.edges.add(e);
     }
 
     public boolean isConnectedTo(Node n){
@@ -0,0 +1,38 @@
+package lab;
+
+/**
+ * Priority queue over node ids used by the path search. Only nodes that are
+ * currently on the frontier are stored; pushing a node that is already queued
+ * with a smaller key lowers its key (decrease-key).
+ */
+public interface NodeQueue {
+
+    /**
+     * inserts node id with the given key, or lowers its key if it is already queued
+     * @param id
+     *      id of the node
+     * @param key
+     *      tentative distance of the node
+     */
+    void push(int id, double key);
+
+    /**
+     * removes the node with the smallest key
+     * @return
+     *      id of the removed node
+     */
+    int poll();
+
+    /**
+     * @return
+     *      smallest key in the queue, infinity if the queue is empty
+     */
+    double minKey();
+
+    boolean isEmpty();
+
+    /**
+     * removes every entry so the queue can be reused for the next search
+     */
+    void clear();
+}
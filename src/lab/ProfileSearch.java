@@ -0,0 +1,57 @@
+package lab;
+
+/**
+ * Profile search: the travel time from one source for every departure time
+ * at once. Labels are TravelTimeFunctions instead of numbers; an edge links
+ * the label of its start with the edge's travel time function and the result
+ * is merged into the label of its end. A node is scanned again whenever its
+ * label got shorter at some departure time (label correcting), in the order
+ * of the shortest travel time of the labels.
+ */
+class ProfileSearch {
+
+    private ProfileSearch(){}
+
+    /**
+     * @param context
+     *      counts the work if NavigationStats.ENABLED, its distances are not used
+     * @return
+     *      travel time from leaving source (after its delay) until arriving at target, null if target can
+     *      not be reached
+     */
+    static TravelTimeFunction search(CompactGraph g, int source, int target, SearchContext context){
+        TravelTimeFunction[] label = new TravelTimeFunction[g.nodeCount()];
+        //nodes are queued again after they were scanned, which not every queue strategy allows
+        NodeQueue queue = new IndexedHeapQueue(g.nodeCount());
+        label[source] = TravelTimeFunction.constant(0);
+        queue.push(source, 0);
+        while(!queue.isEmpty()){
+            //no label found later can be shorter than the smallest key, so the target can not improve anymore
+            if(label[target] != null && queue.minKey() >= label[target].getMaximum())
+                break;
+            int u = queue.poll();
+            if(NavigationStats.ENABLED)
+                context.settled++;
+            if(u == target)
+                continue;
+            //the delay of the source is not part of the trip, like in findFastestTime
+            TravelTimeFunction leave = u == source ? label[u] : label[u].plus(g.delay[u]);
+            if(NavigationStats.ENABLED)
+                context.relaxed += g.offsets[u + 1] - g.offsets[u];
+            for(int e = g.offsets[u], last = g.offsets[u + 1]; e < last; e++){
+                int v = g.targets[e];
+                if(v == source)
+                    continue;
+                TravelTimeFunction candidate = leave.link(g.travelTimeFunction(e));
+                TravelTimeFunction merged = label[v] == null ? candidate : label[v].merge(candidate);
+                if(merged != label[v]){
+                    if(NavigationStats.ENABLED)
+                        context.pushed++;
+                    label[v] = merged;
+                    queue.push(v, merged.getMinimum());
+                }
+            }
+        }
+        return label[target];
+    }
+}
@@ -0,0 +1,80 @@
+package lab;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Textbook Dijkstra with a lazy java.util.PriorityQueue, kept apart from the
+ * Navigation search code so it can check it. It works on plain edge lists
+ * and adds up weights exactly like the lab's rules: an edge u -> v takes
+ * distance km or, by time, the delay of u plus distance / maxSpeed * 60
+ * minutes; the delay of the start is not part of the trip.
+ */
+class ReferenceSolver {
+    private final int nodeCount;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] distance;
+    private final double[] minutes;
+    private final int[] delay;
+
+    /**
+     * @param edgeCount
+     *      number of used entries in from, to, distance and speed
+     */
+    ReferenceSolver(int nodeCount, int[] from, int[] to, int[] distance, int[] speed, int[] delay, int edgeCount){
+        this.nodeCount = nodeCount;
+        this.delay = delay;
+        this.offsets = new int[nodeCount + 1];
+        this.targets = new int[edgeCount];
+        this.distance = new double[edgeCount];
+        this.minutes = new double[edgeCount];
+        for(int e = 0; e < edgeCount; e++)
+            offsets[from[e] + 1]++;
+        for(int u = 0; u < nodeCount; u++)
+            offsets[u + 1] += offsets[u];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for(int e = 0; e < edgeCount; e++){
+            int slot = fill[from[e]]++;
+            targets[slot] = to[e];
+            this.distance[slot] = distance[e];
+            this.minutes[slot] = (double) distance[e] / speed[e] * 60;
+        }
+    }
+
+    /**
+     * @return
+     *      for every node what findShortestDistance (byTime false) or findFastestTime (byTime true)
+     *      returns from source, NO_PATH for nodes that can not be reached
+     */
+    int[] answers(int source, boolean byTime){
+        double[] dist = new double[nodeCount];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] { 0, source });
+        while(!queue.isEmpty()){
+            double[] entry = queue.poll();
+            int u = (int) entry[1];
+            if(entry[0] > dist[u])
+                continue;
+            for(int e = offsets[u]; e < offsets[u + 1]; e++){
+                double candidate = byTime ? (dist[u] + delay[u]) + minutes[e] : dist[u] + distance[e];
+                if(candidate < dist[targets[e]]){
+                    dist[targets[e]] = candidate;
+                    queue.add(new double[] { candidate, targets[e] });
+                }
+            }
+        }
+        int[] answers = new int[nodeCount];
+        for(int v = 0; v < nodeCount; v++){
+            if(v == source)
+                answers[v] = 0;
+            else if(dist[v] == Double.POSITIVE_INFINITY)
+                answers[v] = Navigation.NO_PATH;
+            else
+                answers[v] = (int) Math.ceil(byTime ? dist[v] - delay[source] : dist[v]);
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,135 @@
+package lab;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A route found by Navigation: the nodes from source to destination, the edges
+ * taken between them and the distance and minutes driven up to every node.
+ * Minutes include the delays of all nodes passed, but not the delay of the source,
+ * so the last entries equal findShortestDistance/findFastestTime before rounding up.
+ */
+public class Route {
+    private final CompactGraph graph;
+    private final int[] nodes;
+    private final int[] edges;
+    private final double[] distance;
+    private final double[] minutes;
+
+    private Route(CompactGraph graph, int[] nodes, int[] edges, double[] distance, double[] minutes){
+        this.graph = graph;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.distance = distance;
+        this.minutes = minutes;
+    }
+
+    /**
+     * builds the route along path, picking the cheapest edge under metric where nodes
+     * are connected more than once. Distances and minutes are summed in the same order the search adds them.
+     * @param path
+     *      node ids from source to destination
+     */
+    static Route of(CompactGraph g, int[] path, Metric metric){
+        double[] cost = g.costs(metric).edge;
+        int[] edges = new int[path.length - 1];
+        double[] distance = new double[path.length];
+        double[] minutes = new double[path.length];
+        int source = path[0];
+        double time = 0;
+        for(int i = 0; i < edges.length; i++){
+            int u = path[i];
+            int best = -1;
+            for(int e = g.firstEdge(u); e < g.endEdge(u); e++)
+                if(g.getTarget(e) == path[i + 1] && (best < 0 || cost[e] < cost[best]))
+                    best = e;
+            edges[i] = best;
+            distance[i + 1] = distance[i] + g.distance[best];
+            time = (time + g.delay[u]) + g.minutes[best];
+            minutes[i + 1] = time - g.delay[source];
+        }
+        return new Route(g, path, edges, distance, minutes);
+    }
+
+    /**
+     * @return
+     *      number of nodes on the route, 1 if source and destination are the same
+     */
+    public int size(){
+        return nodes.length;
+    }
+
+    /**
+     * @return
+     *      id of the i-th node, see CompactGraph
+     */
+    public int getNode(int i){
+        return nodes[i];
+    }
+
+    public String getName(int i){
+        return graph.getName(nodes[i]);
+    }
+
+    /**
+     * @return
+     *      the node names from source to destination
+     */
+    public List<String> getNames(){
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i){
+                return getName(i);
+            }
+
+            @Override
+            public int size(){
+                return nodes.length;
+            }
+        };
+    }
+
+    /**
+     * @return
+     *      edge slot (see CompactGraph) leading from the i-th to the (i+1)-th node
+     */
+    public int getEdge(int i){
+        return edges[i];
+    }
+
+    /**
+     * @return
+     *      distance driven from the source up to the i-th node
+     */
+    public double getDistance(int i){
+        return distance[i];
+    }
+
+    /**
+     * @return
+     *      minutes from leaving the source up to arriving at the i-th node
+     */
+    public double getMinutes(int i){
+        return minutes[i];
+    }
+
+    public double getTotalDistance(){
+        return distance[nodes.length - 1];
+    }
+
+    public double getTotalMinutes(){
+        return minutes[nodes.length - 1];
+    }
+
+    int[] nodeIds(){
+        return nodes;
+    }
+
+    /**
+     * @return
+     *      the version of the map the route was found on
+     */
+    CompactGraph graph(){
+        return graph;
+    }
+}
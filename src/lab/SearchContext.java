@@ -0,0 +1,260 @@
+package lab;
+
+import java.util.Arrays;
+
+/**
+ * Per-query state of a path search: tentative distances, predecessors and the
+ * priority queue, all indexed by node id.
+ *
+ * A context is used by one thread at a time and reused for many queries.
+ * Instead of resetting every entry before a query, each entry is tagged with
+ * the query it was written by, so starting a new query is O(1).
+ */
+public class SearchContext {
+    final double[] distance;
+    final int[] previous;
+    private final int[] visited;
+    private int generation;
+    private int source = -1;
+    final NodeQueue queue;
+    //work of the current query, only counted if NavigationStats.ENABLED
+    long settled;
+    long relaxed;
+    long pushed;
+    long rekeyed;
+
+    /**
+     * @param nodeCount
+     *      number of nodes of the map the context is used for
+     * @param queue
+     *      queue big enough for nodeCount nodes
+     */
+    public SearchContext(int nodeCount, NodeQueue queue){
+        this.distance = new double[nodeCount];
+        this.previous = new int[nodeCount];
+        this.visited = new int[nodeCount];
+        this.generation = 0;
+        this.queue = queue;
+    }
+
+    /**
+     * forgets the result of the previous query
+     */
+    void reset(){
+        generation++;
+        if(generation == 0){
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+        queue.clear();
+    }
+
+    /**
+     * @return
+     *      id of the node the last search started from
+     */
+    public int getSource(){
+        return source;
+    }
+
+    /**
+     * @return
+     *      tentative (after the search: final) distance of node, infinity if it was not reached
+     */
+    public double getDistance(int node){
+        return visited[node] == generation ? distance[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return
+     *      id of the node before node on its shortest path, -1 for the source or unreached nodes
+     */
+    public int getPrevious(int node){
+        return visited[node] == generation ? previous[node] : -1;
+    }
+
+    /**
+     * forgets the result of the previous query and puts source into the queue
+     */
+    void start(int source){
+        reset();
+        this.source = source;
+        set(source, 0, -1);
+        queue.push(source, 0);
+    }
+
+    void resetCounters(){
+        settled = 0;
+        relaxed = 0;
+        pushed = 0;
+        rekeyed = 0;
+    }
+
+    /**
+     * adds the counters of other to these and resets other
+     */
+    void absorbCounters(SearchContext other){
+        settled += other.settled;
+        relaxed += other.relaxed;
+        pushed += other.pushed;
+        rekeyed += other.rekeyed;
+        other.resetCounters();
+    }
+
+    /**
+     * counts pushing node into the queue, as a re-key if node was labelled before. Has to be called before set()
+     */
+    void countPush(int node){
+        if(visited[node] == generation)
+            rekeyed++;
+        else
+            pushed++;
+    }
+
+    void set(int node, double newDistance, int newPrevious){
+        visited[node] = generation;
+        distance[node] = newDistance;
+        previous[node] = newPrevious;
+    }
+
+    /**
+     * Dijkstra over the compact graph
+     * @param g
+     *      the graph to search
+     * @param source
+     *      id of the start node
+     * @param target
+     *      id of the destination node, or -1 to settle every reachable node
+     * @param costs
+     *      the metric to minimise, see CompactGraph.costs
+     * @param stopAtTarget
+     *      true to stop as soon as the target is settled
+     * @return
+     *      true if the target was reached
+     */
+    boolean dijkstra(CompactGraph g, int source, int target, CostTable costs, boolean stopAtTarget){
+        return dijkstra(g.offsets, g.targets, source, target, costs, stopAtTarget);
+    }
+
+    /**
+     * Dijkstra over a graph given as edge offsets and targets in the layout of CompactGraph, for graphs that
+     * are not loaded as one, see GraphSnapshot
+     */
+    boolean dijkstra(int[] offsets, int[] targets, int source, int target, CostTable costs, boolean stopAtTarget){
+        boolean found = false;
+        //the queue only ever holds nodes of the frontier, starting with the source
+        start(source);
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            if(NavigationStats.ENABLED)
+                settled++;
+            if(u == target){
+                found = true;
+                //the destination is settled, its distance and previous node won't change anymore
+                if(stopAtTarget)
+                    break;
+            }
+            relax(offsets, targets, u, costs);
+        }
+        return found;
+    }
+
+    /**
+     * Dijkstra over the compact graph that stops once every wanted node is settled
+     * @param g
+     *      the graph to search
+     * @param source
+     *      id of the start node
+     * @param wanted
+     *      wanted[v] is true for every node whose distance is needed
+     * @param wantedCount
+     *      number of wanted nodes
+     * @param costs
+     *      the metric to minimise, see CompactGraph.costs
+     */
+    void dijkstra(CompactGraph g, int source, boolean[] wanted, int wantedCount, CostTable costs){
+        start(source);
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            if(NavigationStats.ENABLED)
+                settled++;
+            if(wanted[u] && --wantedCount == 0)
+                break;
+            relax(g.offsets, g.targets, u, costs);
+        }
+    }
+
+    /**
+     * Time-dependent Dijkstra: the time of an edge depends on when it is entered, see CompactGraph.travelTime.
+     * Distances are minutes since arriving at the source, including its delay, like in a static search by time.
+     * Settling nodes in order of arrival is exact because entering an edge later never means leaving it
+     * earlier (FIFO), see SpeedProfile
+     * @param departure
+     *      minutes after midnight at which the source is left, once its delay is over
+     * @return
+     *      true if the target was reached
+     */
+    boolean earliestArrival(CompactGraph g, int source, int target, double departure, boolean stopAtTarget){
+        boolean found = false;
+        double arrivalAtSource = departure - g.delay[source];
+        start(source);
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            if(NavigationStats.ENABLED)
+                settled++;
+            if(u == target){
+                found = true;
+                if(stopAtTarget)
+                    break;
+            }
+            double leave = distance[u] + g.delay[u];
+            if(NavigationStats.ENABLED)
+                relaxed += g.offsets[u + 1] - g.offsets[u];
+            for(int e = g.offsets[u], last = g.offsets[u + 1]; e < last; e++){
+                int v = g.targets[e];
+                double candidate = leave + g.travelTime(e, arrivalAtSource + leave);
+                if(candidate < getDistance(v)){
+                    if(NavigationStats.ENABLED)
+                        countPush(v);
+                    set(v, candidate, u);
+                    queue.push(v, candidate);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * relaxes every outgoing edge of u, the queue lowers the key of nodes it already holds
+     */
+    private void relax(int[] offsets, int[] targets, int u, CostTable costs){
+        double departure = distance[u] + costs.departure[u];
+        double[] weight = costs.edge;
+        if(NavigationStats.ENABLED)
+            relaxed += offsets[u + 1] - offsets[u];
+        for(int e = offsets[u], last = offsets[u + 1]; e < last; e++){
+            int v = targets[e];
+            double candidate = departure + weight[e];
+            if(candidate < getDistance(v)){
+                if(NavigationStats.ENABLED)
+                    countPush(v);
+                set(v, candidate, u);
+                queue.push(v, candidate);
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      node ids of the shortest path from the source to target, in driving order
+     */
+    public int[] pathTo(int target){
+        int length = 0;
+        for(int n = target; n >= 0; n = getPrevious(n))
+            length++;
+        int[] path = new int[length];
+        for(int n = target; n >= 0; n = getPrevious(n))
+            path[--length] = n;
+        return path;
+    }
+}
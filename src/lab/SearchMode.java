@@ -0,0 +1,30 @@
+package lab;
+
+/**
+ * Algorithm used by Navigation to answer a query.
+ */
+public enum SearchMode {
+    /**
+     * Dijkstra from the source, stops when the destination is settled
+     */
+    DIJKSTRA,
+    /**
+     * Dijkstra forward from the source and backward from the destination over reversed edges
+     */
+    BIDIRECTIONAL,
+    /**
+     * A* guided by the straight-line distance to the destination, falls back to DIJKSTRA if the map has no
+     * coordinates
+     */
+    ASTAR,
+    /**
+     * A* guided by precomputed landmark distances (see Navigation.useLandmarks), falls back to DIJKSTRA if no
+     * landmarks are set
+     */
+    ALT,
+    /**
+     * upward bidirectional search in a contraction hierarchy (see Navigation.useContractionHierarchy) for time
+     * queries. Distance queries, and time queries without a hierarchy, use DIJKSTRA
+     */
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,211 @@
+package lab;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * All shortest paths from one source under one metric: the distance of every
+ * node and the node before it on its shortest path.
+ */
+public class ShortestPathTree {
+    final int source;
+    final Metric metric;
+    final double[] distance;
+    final int[] previous;
+    final long version;
+
+    ShortestPathTree(int source, Metric metric, double[] distance, int[] previous, long version){
+        this.source = source;
+        this.metric = metric;
+        this.distance = distance;
+        this.previous = previous;
+        this.version = version;
+    }
+
+    /**
+     * runs a full Dijkstra from source and keeps its result
+     */
+    static ShortestPathTree compute(CompactGraph g, int source, Metric metric, SearchContext context){
+        context.dijkstra(g, source, -1, g.costs(metric), false);
+        int n = g.nodeCount();
+        double[] distance = new double[n];
+        int[] previous = new int[n];
+        for(int v = 0; v < n; v++){
+            distance[v] = context.getDistance(v);
+            previous[v] = context.getPrevious(v);
+        }
+        return new ShortestPathTree(source, metric, distance, previous, g.getVersion());
+    }
+
+    public int getSource(){
+        return source;
+    }
+
+    public Metric getMetric(){
+        return metric;
+    }
+
+    /**
+     * @return
+     *      version of the map the tree was computed for, see CompactGraph.getVersion
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * @return
+     *      the same tree, marked as valid for another version of the map
+     */
+    ShortestPathTree withVersion(long version){
+        return new ShortestPathTree(source, metric, distance, previous, version);
+    }
+
+    /**
+     * Repairs the tree after the weights changed from old to next, in the style of Ramalingam and Reps.
+     * Nodes below an edge of the tree that got more expensive lose their distance and take the best
+     * edge from the rest of the tree, nodes behind an edge that got cheaper get the shorter distance,
+     * and only from these nodes the changes are passed on by Dijkstra. The rest of the tree is kept.
+     * @param changed
+     *      edge slots whose weight may differ between old and next
+     * @param queue
+     *      queue for the nodes of the map, it is cleared before use so one queue can repair many trees
+     * @return
+     *      the tree for next, this tree stays as it is for queries still running on old
+     */
+    ShortestPathTree repair(CompactGraph old, CompactGraph next, BitSet changed, NodeQueue queue){
+        CostTable before = old.costs(metric);
+        CostTable after = next.costs(metric);
+        int[] stack = new int[16];
+        int roots = 0;
+        int[] cheaper = new int[16];
+        int cheaperCount = 0;
+        for(int e = changed.nextSetBit(0); e >= 0; e = changed.nextSetBit(e + 1)){
+            int u = next.sources[e];
+            if(distance[u] == Double.POSITIVE_INFINITY)
+                continue;
+            double weightBefore = before.departure[u] + before.edge[e];
+            double weightAfter = after.departure[u] + after.edge[e];
+            if(weightAfter > weightBefore && previous[next.targets[e]] == u){
+                if(roots == stack.length)
+                    stack = Arrays.copyOf(stack, 2 * roots);
+                stack[roots++] = next.targets[e];
+            }
+            else if(weightAfter < weightBefore){
+                if(cheaperCount == cheaper.length)
+                    cheaper = Arrays.copyOf(cheaper, 2 * cheaperCount);
+                cheaper[cheaperCount++] = e;
+            }
+        }
+        if(roots == 0 && cheaperCount == 0)
+            return withVersion(next.getVersion());
+
+        queue.clear();
+        double[] distance = this.distance.clone();
+        int[] previous = this.previous.clone();
+        //every node whose path uses an edge that got more expensive, found along the tree edges
+        BitSet affected = new BitSet(distance.length);
+        int[] members = new int[16];
+        int memberCount = 0;
+        int top = roots;
+        while(top > 0){
+            int v = stack[--top];
+            if(affected.get(v))
+                continue;
+            affected.set(v);
+            if(memberCount == members.length)
+                members = Arrays.copyOf(members, 2 * memberCount);
+            members[memberCount++] = v;
+            for(int e = next.offsets[v]; e < next.offsets[v + 1]; e++){
+                int w = next.targets[e];
+                if(previous[w] == v && !affected.get(w)){
+                    if(top == stack.length)
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    stack[top++] = w;
+                }
+            }
+        }
+        for(int i = 0; i < memberCount; i++){
+            distance[members[i]] = Double.POSITIVE_INFINITY;
+            previous[members[i]] = -1;
+        }
+        //affected nodes start from their best incoming edge of the kept tree
+        for(int i = 0; i < memberCount; i++){
+            int v = members[i];
+            for(int r = next.reverseOffsets[v]; r < next.reverseOffsets[v + 1]; r++){
+                int e = next.reverseEdges[r];
+                int u = next.sources[e];
+                double candidate = (distance[u] + after.departure[u]) + after.edge[e];
+                if(!affected.get(u) && candidate < distance[v]){
+                    distance[v] = candidate;
+                    previous[v] = u;
+                }
+            }
+            if(distance[v] < Double.POSITIVE_INFINITY)
+                queue.push(v, distance[v]);
+        }
+        for(int i = 0; i < cheaperCount; i++){
+            int e = cheaper[i];
+            int u = next.sources[e];
+            int v = next.targets[e];
+            double candidate = (distance[u] + after.departure[u]) + after.edge[e];
+            if(!affected.get(u) && candidate < distance[v]){
+                distance[v] = candidate;
+                previous[v] = u;
+                queue.push(v, candidate);
+            }
+        }
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            double departure = distance[u] + after.departure[u];
+            for(int e = next.offsets[u]; e < next.offsets[u + 1]; e++){
+                int v = next.targets[e];
+                double candidate = departure + after.edge[e];
+                if(candidate < distance[v]){
+                    distance[v] = candidate;
+                    previous[v] = u;
+                    queue.push(v, candidate);
+                }
+            }
+        }
+        return new ShortestPathTree(source, metric, distance, previous, next.getVersion());
+    }
+
+    /**
+     * @return
+     *      cost from the source to node (including the departure cost of the source), infinity if node can not be reached
+     */
+    public double getDistance(int node){
+        return distance[node];
+    }
+
+    /**
+     * @return
+     *      node before node on its shortest path, -1 for the source and unreached nodes
+     */
+    public int getPrevious(int node){
+        return previous[node];
+    }
+
+    /**
+     * copies the path from the source to target into context, as if context had searched it
+     * @return
+     *      true if target can be reached
+     */
+    boolean copyPathTo(int target, SearchContext context){
+        if(distance[target] == Double.POSITIVE_INFINITY)
+            return false;
+        context.start(source);
+        for(int v = target; v != source; v = previous[v])
+            context.set(v, distance[v], previous[v]);
+        return true;
+    }
+
+    /**
+     * @return
+     *      estimated memory of the tree in bytes
+     */
+    long bytes(){
+        return 12L * distance.length + 32;
+    }
+}
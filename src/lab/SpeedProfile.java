@@ -0,0 +1,224 @@
+package lab;
+
+import java.util.Arrays;
+
+/**
+ * Speed over the day as a share of an edge's speed limit, for example 0.4
+ * in the rush hour and 1 at night. The factor is given at breakpoints in
+ * minutes after midnight, linear between them and repeating every day, so
+ * after the last breakpoint it goes over to the first one of the next day.
+ *
+ * The time to drive along an edge is found by integrating the speed while
+ * driving, not by taking the speed at the moment the edge is entered. So a
+ * car entering an edge later never leaves it earlier (the FIFO property),
+ * which the time-dependent search relies on.
+ *
+ * Profiles are immutable and meant to be shared: the map keeps every
+ * distinct profile once and an index per edge, see CompactGraph.
+ */
+public class SpeedProfile {
+    /** length of the repeating period in minutes */
+    public static final double DAY = 1440;
+    //largest error of travelTimeFunction in minutes
+    private static final double TOLERANCE = 0.01;
+    private static final int MAX_DEPTH = 16;
+    //bisection steps to find a departure time, enough to reach double precision
+    private static final int BISECTION_STEPS = 60;
+
+    final double[] times;
+    final double[] factors;
+
+    /**
+     * @param times
+     *      breakpoints in minutes after midnight, ascending and in [0, DAY)
+     * @param factors
+     *      share of the speed limit at every breakpoint, more than 0
+     */
+    public SpeedProfile(double[] times, double[] factors){
+        if(times.length == 0 || times.length != factors.length)
+            throw new IllegalArgumentException("a profile needs the same positive number of times and factors");
+        for(int i = 0; i < times.length; i++){
+            if(!(times[i] >= 0 && times[i] < DAY) || (i > 0 && !(times[i] > times[i - 1])))
+                throw new IllegalArgumentException("breakpoints have to be ascending minutes of a day: " + times[i]);
+            if(!(factors[i] > 0) || Double.isInfinite(factors[i]))
+                throw new IllegalArgumentException("invalid speed factor " + factors[i]);
+        }
+        this.times = times.clone();
+        this.factors = factors.clone();
+    }
+
+    /**
+     * @return
+     *      index of the breakpoint the segment containing time (in [0, DAY)) starts at
+     */
+    private int segment(double time){
+        int i = Arrays.binarySearch(times, time);
+        if(i >= 0)
+            return i;
+        //before the first breakpoint the last segment of the previous day is still running
+        return i == -1 ? times.length - 1 : -i - 2;
+    }
+
+    private double segmentStart(int i, double time){
+        return times[i] <= time ? times[i] : times[i] - DAY;
+    }
+
+    private double segmentEnd(int i, double start){
+        return i + 1 < times.length ? times[i + 1] : times[0] + DAY + (start < 0 ? -DAY : 0);
+    }
+
+    /**
+     * @param time
+     *      minutes after midnight, values outside of [0, DAY) fall on other days
+     * @return
+     *      share of the speed limit at time
+     */
+    public double getFactor(double time){
+        double t = time - Math.floor(time / DAY) * DAY;
+        int i = segment(t);
+        double start = segmentStart(i, t);
+        double end = segmentEnd(i, start);
+        double next = factors[(i + 1) % factors.length];
+        return factors[i] + (next - factors[i]) * (t - start) / (end - start);
+    }
+
+    /**
+     * @param freeFlowMinutes
+     *      minutes the edge takes at its speed limit
+     * @param departure
+     *      minutes after midnight at which the edge is entered
+     * @return
+     *      minutes the edge takes when entered at departure
+     */
+    public double travelTime(double freeFlowMinutes, double departure){
+        double t = departure - Math.floor(departure / DAY) * DAY;
+        int i = segment(t);
+        double start = segmentStart(i, t);
+        double remaining = freeFlowMinutes;
+        double elapsed = 0;
+        while(true){
+            double end = segmentEnd(i, start);
+            double next = factors[(i + 1) % factors.length];
+            double slope = (next - factors[i]) / (end - start);
+            double factor = factors[i] + slope * (t - start);
+            //minutes at the speed limit that are covered until the end of the segment
+            double covered = (end - t) * (factor + next) / 2;
+            if(covered >= remaining){
+                //solves factor * x + slope * x^2 / 2 = remaining, in a form that is stable for slope near 0
+                return elapsed + 2 * remaining / (factor + Math.sqrt(factor * factor + 2 * slope * remaining));
+            }
+            remaining -= covered;
+            elapsed += end - t;
+            i = (i + 1) % times.length;
+            t = times[i];
+            start = t;
+        }
+    }
+
+    /**
+     * Samples the travel time of an edge taking freeFlowMinutes at its speed limit. It has a kink wherever the
+     * edge is entered or left at a breakpoint of the profile; these departure times are sampled exactly. In
+     * between the travel time is smooth but bent, so every piece is halved until a straight line is within
+     * TOLERANCE of it
+     * @return
+     *      the travel time of the edge for every departure time, within TOLERANCE minutes
+     */
+    TravelTimeFunction travelTimeFunction(double freeFlowMinutes){
+        if(freeFlowMinutes == 0)
+            return TravelTimeFunction.constant(0);
+        int k = times.length;
+        double[] kinks = new double[2 * k];
+        for(int i = 0; i < k; i++){
+            kinks[i] = times[i];
+            double leave = departureArriving(freeFlowMinutes, times[i]);
+            kinks[k + i] = leave - Math.floor(leave / DAY) * DAY;
+        }
+        Arrays.sort(kinks);
+        Samples samples = new Samples();
+        for(int i = 0; i < kinks.length; i++){
+            double from = kinks[i];
+            double to = i + 1 < kinks.length ? kinks[i + 1] : kinks[0] + DAY;
+            if(to - from <= 1e-9)
+                continue;
+            double value = travelTime(freeFlowMinutes, from);
+            samples.add(from, value);
+            samples.refine(freeFlowMinutes, from, value, to, travelTime(freeFlowMinutes, to), 0);
+        }
+        //samples of the last segment after midnight belong to the start of the day
+        int n = samples.count;
+        int wrapped = 0;
+        while(wrapped < n && samples.times[n - 1 - wrapped] >= DAY)
+            wrapped++;
+        double[] sampleTimes = new double[n];
+        double[] values = new double[n];
+        for(int i = 0; i < n; i++){
+            int from = (i + n - wrapped) % n;
+            sampleTimes[i] = i < wrapped ? samples.times[from] - DAY : samples.times[from];
+            values[i] = samples.values[from];
+        }
+        return TravelTimeFunction.simplify(sampleTimes, values);
+    }
+
+    /**
+     * @return
+     *      the time the edge has to be entered at to be left at arrival. Leaving later means entering later,
+     *      so bisection finds it
+     */
+    private double departureArriving(double freeFlowMinutes, double arrival){
+        double slowest = factors[0];
+        for(double factor : factors)
+            slowest = Math.min(slowest, factor);
+        double early = arrival - freeFlowMinutes / slowest - 1;
+        double late = arrival;
+        for(int step = 0; step < BISECTION_STEPS; step++){
+            double middle = (early + late) / 2;
+            if(middle + travelTime(freeFlowMinutes, middle) < arrival)
+                early = middle;
+            else
+                late = middle;
+        }
+        return late;
+    }
+
+    /**
+     * sampled departure times and travel times, in ascending order
+     */
+    private final class Samples {
+        double[] times = new double[16];
+        double[] values = new double[16];
+        int count;
+
+        void add(double time, double value){
+            if(count == times.length){
+                times = Arrays.copyOf(times, 2 * count);
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            times[count] = time;
+            values[count++] = value;
+        }
+
+        /**
+         * adds the samples strictly between from and to that are needed to stay within TOLERANCE
+         */
+        void refine(double freeFlowMinutes, double from, double atFrom, double to, double atTo, int depth){
+            double middle = (from + to) / 2;
+            double atMiddle = travelTime(freeFlowMinutes, middle);
+            if(depth == MAX_DEPTH || Math.abs(atMiddle - (atFrom + atTo) / 2) <= TOLERANCE)
+                return;
+            refine(freeFlowMinutes, from, atFrom, middle, atMiddle, depth + 1);
+            add(middle, atMiddle);
+            refine(freeFlowMinutes, middle, atMiddle, to, atTo, depth + 1);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return o instanceof SpeedProfile && Arrays.equals(times, ((SpeedProfile) o).times)
+                && Arrays.equals(factors, ((SpeedProfile) o).factors);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * Arrays.hashCode(times) + Arrays.hashCode(factors);
+    }
+}
@@ -0,0 +1,324 @@
+package lab;
+
+import java.util.Arrays;
+
+/**
+ * Travel time as a function of the departure time, linear between
+ * breakpoints and repeating every day like a SpeedProfile: values[i]
+ * minutes when leaving at times[i] minutes after midnight.
+ *
+ * Functions found by the path search are FIFO, leaving later never means
+ * arriving earlier. link and merge keep that property and are exact: they
+ * only add the breakpoints where the result bends.
+ */
+public class TravelTimeFunction {
+    private static final double DAY = SpeedProfile.DAY;
+    //breakpoints closer than this are one, values closer than this are equal
+    private static final double EPSILON = 1e-9;
+
+    final double[] times;
+    final double[] values;
+
+    TravelTimeFunction(double[] times, double[] values){
+        this.times = times;
+        this.values = values;
+    }
+
+    /**
+     * @return
+     *      the function that takes minutes at every departure time
+     */
+    public static TravelTimeFunction constant(double minutes){
+        return new TravelTimeFunction(new double[] { 0 }, new double[] { minutes });
+    }
+
+    /**
+     * @param departure
+     *      minutes after midnight, values outside of [0, DAY) fall on other days
+     * @return
+     *      travel time in minutes when leaving at departure
+     */
+    public double evaluate(double departure){
+        int n = times.length;
+        double t = times[0] + mod(departure - times[0]);
+        int i = Arrays.binarySearch(times, t);
+        if(i >= 0)
+            return values[i];
+        i = -i - 2;
+        double end = i + 1 < n ? times[i + 1] : times[0] + DAY;
+        double next = values[(i + 1) % n];
+        return values[i] + (next - values[i]) * (t - times[i]) / (end - times[i]);
+    }
+
+    private static double mod(double time){
+        return time - Math.floor(time / DAY) * DAY;
+    }
+
+    /**
+     * evaluates the function at many departure times in one sweep
+     * @param departures
+     *      the departure times, ascending apart from rounding errors. They may reach into other days
+     * @return
+     *      the travel time at every departure time
+     */
+    private double[] evaluateAll(double[] departures){
+        int n = times.length;
+        double[] result = new double[departures.length];
+        double day = Double.NEGATIVE_INFINITY;
+        double last = Double.NEGATIVE_INFINITY;
+        int i = 0;
+        for(int k = 0; k < departures.length; k++){
+            double departure = departures[k];
+            if(departure < last){
+                result[k] = evaluate(departure);
+                continue;
+            }
+            last = departure;
+            double start = Math.floor((departure - times[0]) / DAY) * DAY;
+            if(start != day){
+                day = start;
+                i = 0;
+            }
+            double t = departure - day;
+            while(i + 1 < n && times[i + 1] <= t)
+                i++;
+            double end = i + 1 < n ? times[i + 1] : times[0] + DAY;
+            double next = values[(i + 1) % n];
+            result[k] = values[i] + (next - values[i]) * (t - times[i]) / (end - times[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return
+     *      number of breakpoints
+     */
+    public int size(){
+        return times.length;
+    }
+
+    /**
+     * @return
+     *      departure time of the i-th breakpoint in minutes after midnight
+     */
+    public double getTime(int i){
+        return times[i];
+    }
+
+    /**
+     * @return
+     *      travel time in minutes when leaving at getTime(i)
+     */
+    public double getValue(int i){
+        return values[i];
+    }
+
+    /**
+     * @return
+     *      shortest travel time over the day, it is always taken at a breakpoint
+     */
+    public double getMinimum(){
+        return values[bestBreakpoint()];
+    }
+
+    public double getMaximum(){
+        double max = values[0];
+        for(double value : values)
+            max = Math.max(max, value);
+        return max;
+    }
+
+    /**
+     * @return
+     *      the departure time with the shortest travel time, the earliest one if there are several
+     */
+    public double getBestDeparture(){
+        return times[bestBreakpoint()];
+    }
+
+    private int bestBreakpoint(){
+        int best = 0;
+        for(int i = 1; i < values.length; i++)
+            if(values[i] < values[best])
+                best = i;
+        return best;
+    }
+
+    /**
+     * @return
+     *      this function, minutes longer at every departure time
+     */
+    TravelTimeFunction plus(double minutes){
+        if(minutes == 0)
+            return this;
+        double[] shifted = new double[values.length];
+        for(int i = 0; i < values.length; i++)
+            shifted[i] = values[i] + minutes;
+        return new TravelTimeFunction(times, shifted);
+    }
+
+    /**
+     * @return
+     *      travel time of this trip followed by next, entered on arrival: this(t) + next(t + this(t))
+     */
+    TravelTimeFunction link(TravelTimeFunction next){
+        if(times.length == 1 && next.times.length == 1)
+            return constant(values[0] + next.values[0]);
+        int n = times.length;
+        int m = next.times.length;
+        double[] candidates = Arrays.copyOf(times, n + 4);
+        int count = n;
+        //the result also bends where the arrival passes a breakpoint of next
+        for(int i = 0; i < n; i++){
+            double start = times[i];
+            double end = i + 1 < n ? times[i + 1] : times[0] + DAY;
+            double arrive = start + values[i];
+            double leave = end + values[(i + 1) % n];
+            if(!(leave > arrive))
+                continue;
+            double shift = Math.floor((arrive - next.times[0]) / DAY) * DAY;
+            int j = Arrays.binarySearch(next.times, arrive - shift);
+            j = j >= 0 ? j : -j - 1;
+            if(j == m){
+                j = 0;
+                shift += DAY;
+            }
+            while(next.times[j] + shift < leave){
+                double arrival = next.times[j] + shift;
+                if(arrival > arrive){
+                    if(count == candidates.length)
+                        candidates = Arrays.copyOf(candidates, 2 * count);
+                    candidates[count++] = mod(start + (arrival - arrive) * (end - start) / (leave - arrive));
+                }
+                if(++j == m){
+                    j = 0;
+                    shift += DAY;
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        double[] linked = unique(candidates, count);
+        double[] result = evaluateAll(linked);
+        double[] arrival = new double[linked.length];
+        for(int i = 0; i < linked.length; i++)
+            arrival[i] = linked[i] + result[i];
+        double[] after = next.evaluateAll(arrival);
+        for(int i = 0; i < linked.length; i++)
+            result[i] += after[i];
+        return simplify(linked, result);
+    }
+
+    /**
+     * @return
+     *      the shorter of both travel times at every departure time, this function itself if other is nowhere
+     *      shorter
+     */
+    TravelTimeFunction merge(TravelTimeFunction other){
+        double[] candidates = union(times, other.times);
+        int n = candidates.length;
+        double[] mine = evaluateAll(candidates);
+        double[] theirs = other.evaluateAll(candidates);
+        boolean shorter = false;
+        for(int i = 0; i < n && !shorter; i++)
+            shorter = mine[i] - theirs[i] > EPSILON;
+        if(!shorter)
+            return this;
+        //both are linear between the candidates, so they cross at most once there
+        double[] mergedTimes = new double[2 * n];
+        double[] mergedValues = new double[2 * n];
+        int count = 0;
+        double wrapTime = Double.NaN;
+        double wrapValue = 0;
+        for(int i = 0; i < n; i++){
+            mergedTimes[count] = candidates[i];
+            mergedValues[count++] = Math.min(mine[i], theirs[i]);
+            int j = (i + 1) % n;
+            double start = candidates[i];
+            double end = j > i ? candidates[j] : candidates[j] + DAY;
+            double before = mine[i] - theirs[i];
+            double after = mine[j] - theirs[j];
+            if((before > EPSILON && after < -EPSILON) || (before < -EPSILON && after > EPSILON)){
+                double crossing = start + (end - start) * before / (before - after);
+                double value = mine[i] + (mine[j] - mine[i]) * (crossing - start) / (end - start);
+                if(crossing - start <= EPSILON || end - crossing <= EPSILON)
+                    continue;
+                if(crossing < DAY){
+                    mergedTimes[count] = crossing;
+                    mergedValues[count++] = value;
+                }
+                else{
+                    wrapTime = crossing - DAY;
+                    wrapValue = value;
+                }
+            }
+        }
+        if(!Double.isNaN(wrapTime)){
+            System.arraycopy(mergedTimes, 0, mergedTimes, 1, count);
+            System.arraycopy(mergedValues, 0, mergedValues, 1, count);
+            mergedTimes[0] = wrapTime;
+            mergedValues[0] = wrapValue;
+            count++;
+        }
+        return simplify(Arrays.copyOf(mergedTimes, count), Arrays.copyOf(mergedValues, count));
+    }
+
+    /**
+     * @return
+     *      the breakpoints of a and b in one ascending list, see unique
+     */
+    private static double[] union(double[] a, double[] b){
+        double[] union = new double[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while(i < a.length || j < b.length)
+            union[count++] = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+        return unique(union, count);
+    }
+
+    /**
+     * @return
+     *      the first count entries of the ascending times without breakpoints closer than EPSILON
+     */
+    private static double[] unique(double[] sorted, int count){
+        int unique = 0;
+        for(int i = 0; i < count; i++)
+            if(unique == 0 || sorted[i] - sorted[unique - 1] > EPSILON)
+                sorted[unique++] = sorted[i];
+        //the last breakpoint may be the first one of the next day
+        if(unique > 1 && sorted[0] + DAY - sorted[unique - 1] <= EPSILON)
+            unique--;
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    /**
+     * @return
+     *      the function through the given breakpoints, without the ones that lie on a line with their neighbours
+     */
+    static TravelTimeFunction simplify(double[] times, double[] values){
+        int n = times.length;
+        int[] kept = new int[n];
+        int count = 0;
+        for(int i = 0; i < n; i++){
+            if(count == 0){
+                kept[count++] = i;
+                continue;
+            }
+            int previous = kept[count - 1];
+            int next = (i + 1) % n;
+            double end = next > i ? times[next] : times[next] + DAY;
+            double line = values[previous] + (values[next] - values[previous]) * (times[i] - times[previous]) / (end - times[previous]);
+            if(Math.abs(line - values[i]) > EPSILON)
+                kept[count++] = i;
+        }
+        if(count == n)
+            return new TravelTimeFunction(times, values);
+        double[] keptTimes = new double[count];
+        double[] keptValues = new double[count];
+        for(int i = 0; i < count; i++){
+            keptTimes[i] = times[kept[i]];
+            keptValues[i] = values[kept[i]];
+        }
+        return new TravelTimeFunction(keptTimes, keptValues);
+    }
+}
@@ -0,0 +1,145 @@
+package lab;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of complete shortest path trees per (source, metric). Queries
+ * from a cached source only walk the path, the least recently used trees are
+ * dropped once there are more than maxTrees of them.
+ */
+public class TreeCache {
+    private final LinkedHashMap<Key, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxTrees;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxTrees
+     *      number of trees kept
+     */
+    public TreeCache(int maxTrees){
+        this.maxTrees = maxTrees;
+    }
+
+    /**
+     * cache key of the tree of a source under a metric
+     */
+    private static final class Key {
+        final int source;
+        final Metric metric;
+
+        Key(int source, Metric metric){
+            this.source = source;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            return o instanceof Key && ((Key) o).source == source && ((Key) o).metric == metric;
+        }
+
+        @Override
+        public int hashCode(){
+            return 31 * source + System.identityHashCode(metric);
+        }
+    }
+
+    /**
+     * @param version
+     *      version of the map the tree has to be valid for
+     * @return
+     *      the cached tree of source for the metric, null if it is not cached or outdated
+     */
+    public synchronized ShortestPathTree get(int source, Metric metric, long version){
+        ShortestPathTree tree = trees.get(new Key(source, metric));
+        if(tree == null || tree.version != version){
+            misses++;
+            return null;
+        }
+        hits++;
+        return tree;
+    }
+
+    /**
+     * caches tree, unless a tree for a newer version of the map is cached already
+     */
+    public synchronized void put(ShortestPathTree tree){
+        Key key = new Key(tree.source, tree.metric);
+        ShortestPathTree cached = trees.get(key);
+        if(cached != null && cached.version > tree.version)
+            return;
+        trees.put(key, tree);
+        Iterator<Map.Entry<Key, ShortestPathTree>> eldest = trees.entrySet().iterator();
+        while(trees.size() > maxTrees && eldest.hasNext()){
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * carries the cached trees over to a new version of the map. The trees are repaired without holding the
+     * lock, so queries keep using the cache meanwhile, and swapped in afterwards
+     * @param version
+     *      the new version
+     * @param migrate
+     *      returns the tree for the new version (the same arrays if they are still valid), or null to drop it.
+     *      Only called for trees of the previous version, older ones are dropped
+     */
+    void migrate(long version, Function<ShortestPathTree, ShortestPathTree> migrate){
+        ArrayList<ShortestPathTree> previous = new ArrayList<>();
+        synchronized(this){
+            for(ShortestPathTree tree : trees.values())
+                if(tree.version == version - 1)
+                    previous.add(tree);
+        }
+        IdentityHashMap<ShortestPathTree, ShortestPathTree> migrated = new IdentityHashMap<>();
+        for(ShortestPathTree tree : previous)
+            migrated.put(tree, migrate.apply(tree));
+        synchronized(this){
+            Iterator<Map.Entry<Key, ShortestPathTree>> entries = trees.entrySet().iterator();
+            while(entries.hasNext()){
+                Map.Entry<Key, ShortestPathTree> entry = entries.next();
+                //trees put while repairing are already computed on the new version
+                if(entry.getValue().version >= version)
+                    continue;
+                ShortestPathTree tree = migrated.get(entry.getValue());
+                if(tree == null)
+                    entries.remove();
+                else
+                    entry.setValue(tree);
+            }
+        }
+    }
+
+    public synchronized void clear(){
+        trees.clear();
+    }
+
+    public synchronized int size(){
+        return trees.size();
+    }
+
+    /**
+     * @return
+     *      estimated memory of all cached trees in bytes
+     */
+    public synchronized long bytes(){
+        long bytes = 0;
+        for(ShortestPathTree tree : trees.values())
+            bytes += tree.bytes();
+        return bytes;
+    }
+
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    public synchronized long getMisses(){
+        return misses;
+    }
+}
@@ -0,0 +1,71 @@
+package lab;
+
+import java.util.ArrayList;
+
+/**
+ * A batch of weight changes for Navigation.update: new distances or speed
+ * limits of edges, speed profiles of edges and new delays of nodes. Nodes and edges are named as in
+ * the map file; a change of an edge applies to every edge between the two
+ * nodes. The batch is applied all at once or not at all.
+ */
+public class WeightUpdate {
+    final ArrayList<String[]> edges = new ArrayList<>();
+    final ArrayList<double[]> edgeValues = new ArrayList<>();
+    final ArrayList<String> nodes = new ArrayList<>();
+    final ArrayList<Double> delays = new ArrayList<>();
+    final ArrayList<String[]> profileEdges = new ArrayList<>();
+    final ArrayList<SpeedProfile> profiles = new ArrayList<>();
+
+    private static final double UNCHANGED = Double.NaN;
+
+    /**
+     * @param distance
+     *      new length of the edges from A to B in km, at least 0
+     */
+    public WeightUpdate setDistance(String A, String B, double distance){
+        if(!(distance >= 0) || Double.isInfinite(distance))
+            throw new IllegalArgumentException("invalid distance " + distance + " for " + A + " -> " + B);
+        edges.add(new String[] { A, B });
+        edgeValues.add(new double[] { distance, UNCHANGED });
+        return this;
+    }
+
+    /**
+     * @param maxSpeed
+     *      new speed limit of the edges from A to B in km/h, more than 0
+     */
+    public WeightUpdate setMaxSpeed(String A, String B, double maxSpeed){
+        if(!(maxSpeed > 0) || Double.isInfinite(maxSpeed))
+            throw new IllegalArgumentException("invalid speed " + maxSpeed + " for " + A + " -> " + B);
+        edges.add(new String[] { A, B });
+        edgeValues.add(new double[] { UNCHANGED, maxSpeed });
+        return this;
+    }
+
+    /**
+     * @param delay
+     *      new delay of node in minutes, at least 0
+     */
+    public WeightUpdate setDelay(String node, double delay){
+        if(!(delay >= 0) || Double.isInfinite(delay))
+            throw new IllegalArgumentException("invalid delay " + delay + " for " + node);
+        nodes.add(node);
+        delays.add(delay);
+        return this;
+    }
+
+    /**
+     * @param profile
+     *      speed over the day for the edges from A to B, used by time-dependent searches, or null to
+     *      drive them at their speed limit at any time again
+     */
+    public WeightUpdate setSpeedProfile(String A, String B, SpeedProfile profile){
+        profileEdges.add(new String[] { A, B });
+        profiles.add(profile);
+        return this;
+    }
+
+    public boolean isEmpty(){
+        return edges.isEmpty() && nodes.isEmpty() && profileEdges.isEmpty();
+    }
+}